@@ -0,0 +1,44 @@
+package dev.amine.SNMP;
+
+import org.openjdk.jmh.annotations.*;
+import org.snmp4j.PDU;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.VariableBinding;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of the basic info GET response every probe of a printer ends with.
+ * Run with -prof gc to see the bytes allocated per decode
+ * (gc.alloc.rate.norm) next to the time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class BasicInfoDecodeBenchmark {
+    private PDU response;
+
+    @Setup
+    public void setUp() {
+        PDU request = new PDU();
+        request.setType(PDU.GET);
+        for (String oid : new String[]{PrinterDiscoveryConfig.SYSTEM_NAME, PrinterDiscoveryConfig.MAC_ADDRESS,
+                PrinterDiscoveryConfig.PRINTER_STATUS, PrinterDiscoveryConfig.SERIAL_NUMBER,
+                PrinterDiscoveryConfig.TOTAL_PAGE_COUNT, PrinterDiscoveryConfig.SYSTEM_OBJECT_ID}) {
+            request.add(new VariableBinding(new OID(oid)));
+        }
+        response = new SimulatedPrinter(SimulatedPrinter.Model.HP, true, 4, 3, 5, new Random(1)).answer(request);
+    }
+
+    @Benchmark
+    public PrinterDevice applyBasicInfo() {
+        PrinterDevice device = new PrinterDevice();
+        device.setIpAddress("127.0.0.1");
+        PrinterDiscoveryManager.applyBasicInfo(response, device);
+        return device;
+    }
+}
@@ -0,0 +1,57 @@
+package dev.amine.SNMP;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deriving a device's flags from its supplies and media, done once when its
+ * tables are applied, and the same flags read from the compact snapshot
+ * kept between polls
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class DerivedFlagsBenchmark {
+    @Param({"4", "16"})
+    public int rows;
+
+    private PrinterDevice device;
+    private PrinterSnapshot snapshot;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        SimulatedPrinter printer = new SimulatedPrinter(SimulatedPrinter.Model.HP, true, rows, rows, rows, new Random(1));
+        device = new PrinterDevice();
+        device.setIpAddress("127.0.0.1");
+        new PrinterTableWalker().walk("127.0.0.1", pdu -> CompletableFuture.completedFuture(printer.answer(pdu)))
+                .applyTo(device);
+        snapshot = PrinterSnapshot.of(device);
+    }
+
+    @Benchmark
+    public PrinterDevice deriveFlags() {
+        device.deriveFlags();
+        return device;
+    }
+
+    @Benchmark
+    public PrinterSnapshot takeSnapshot() {
+        return PrinterSnapshot.of(device);
+    }
+
+    @Benchmark
+    public boolean snapshotIsLowToner() {
+        return snapshot.isLowToner();
+    }
+
+    @Benchmark
+    public boolean snapshotCanPrintA3() {
+        return snapshot.canPrintA3();
+    }
+}
@@ -0,0 +1,57 @@
+package dev.amine.SNMP;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A complete scan of one printer through the real sessions, throttle and
+ * table walker, against a single simulated printer on 127.0.0.1. The first
+ * scan registers the printer, so the measured ones take the known-host
+ * path: vendor OIDs in the probe and a timeout derived from the measured RTT.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+// Scans go to the simulator's port, and pacing is lifted so the throttle is not what gets measured
+@Fork(value = 2, jvmArgsAppend = {
+        "-Dprintwatch.snmp.port=" + ScanPrinterBenchmark.PORT,
+        "-Dprintwatch.rate.pps=1000000",
+        "-Dprintwatch.rate.subnetPps=1000000",
+        "-Dprintwatch.rate.adaptive=false"})
+@State(Scope.Benchmark)
+public class ScanPrinterBenchmark {
+    static final int PORT = 16161;
+
+    @Param({"4", "16"})
+    public int rows;
+
+    private PrinterSimulator simulator;
+    private PrinterDiscoveryManager manager;
+    private ScanRange range;
+
+    @Setup
+    public void setUp() throws IOException {
+        simulator = new PrinterSimulator(new PrinterSimulator.Settings(1, "127.0.0.1", PORT,
+                PrinterDiscoveryConfig.COMMUNITY[0], 0, 0, 0, 0, rows, rows, rows, 1));
+        manager = new PrinterDiscoveryManager();
+        range = ScanRange.parse("127.0.0.1");
+        if (manager.discoverPrinters(range).isEmpty()) {
+            throw new IllegalStateException("Simulated printer on port " + PORT + " was not discovered");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.shutDown();
+        simulator.close();
+    }
+
+    @Benchmark
+    public List<PrinterDevice> scanPrinter() {
+        return manager.discoverPrinters(range);
+    }
+}
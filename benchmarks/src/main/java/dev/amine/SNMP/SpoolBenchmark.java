@@ -0,0 +1,99 @@
+package dev.amine.SNMP;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The persistence side of a scan up to the database: encoding a scan cycle
+ * for the spool, appending it to the journal, and decoding it for replay
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class SpoolBenchmark {
+    // Printers per scan record
+    @Param({"1", "64"})
+    public int printers;
+
+    private List<PrinterDevice> scan;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        SimulatedPrinter printer = new SimulatedPrinter(SimulatedPrinter.Model.HP, true, 4, 3, 5, new Random(1));
+        PrinterTables tables = new PrinterTableWalker()
+                .walk("127.0.0.1", pdu -> CompletableFuture.completedFuture(printer.answer(pdu)));
+        scan = new ArrayList<>(printers);
+        for (int i = 0; i < printers; i++) {
+            PrinterDevice device = new PrinterDevice();
+            device.setIpAddress("10.0." + (i >> 8) + "." + (i & 0xFF));
+            device.setModelName("HP Color LaserJet MFP M480f");
+            device.setSerialNumber("CNB1K2L" + i);
+            device.setMacAddress("00:1B:78:3C:5D:7E");
+            device.setVendor("HP");
+            device.setStatus(PrinterStatus.fromStatusValue(3));
+            device.setTotalPageCount(184_233L + i);
+            tables.applyTo(device);
+            scan.add(device);
+        }
+        encoded = ScanRecordCodec.encode(System.currentTimeMillis(), scan);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return ScanRecordCodec.encode(System.currentTimeMillis(), scan);
+    }
+
+    @Benchmark
+    public ScanRecordCodec.Scan decode() {
+        return ScanRecordCodec.decode(ByteBuffer.wrap(encoded));
+    }
+
+    @Benchmark
+    public long append(Journal journal) throws IOException {
+        return journal.journal.append(encoded);
+    }
+
+    /**
+     * A journal in a temporary directory, only set up for the append benchmark
+     */
+    @State(Scope.Benchmark)
+    public static class Journal {
+        @Param({"false", "true"})
+        public boolean fsync;
+
+        private Path directory;
+        private ScanJournal journal;
+
+        @Setup
+        public void open() throws IOException {
+            directory = Files.createTempDirectory("printwatch-spool-bench");
+            // The budget keeps the journal from filling the disk: old segments are dropped as new ones open
+            journal = new ScanJournal(directory, 16 << 20, 64L << 20, fsync);
+        }
+
+        @TearDown
+        public void close() throws IOException {
+            journal.close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+}
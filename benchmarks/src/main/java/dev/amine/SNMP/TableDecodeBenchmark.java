@@ -0,0 +1,48 @@
+package dev.amine.SNMP;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The supply, tray and media table walk against an in-memory agent: parsing
+ * the GETBULK responses into columns, then joining the columns onto a device
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class TableDecodeBenchmark {
+    // Rows in each of the supply, tray and media tables
+    @Param({"4", "16", "64"})
+    public int rows;
+
+    private PrinterTableWalker.RequestSender agent;
+    private PrinterTables tables;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        SimulatedPrinter printer = new SimulatedPrinter(SimulatedPrinter.Model.HP, true, rows, rows, rows, new Random(1));
+        agent = pdu -> CompletableFuture.completedFuture(printer.answer(pdu));
+        tables = new PrinterTableWalker().walk("127.0.0.1", agent);
+    }
+
+    /**
+     * A fresh walker each time, so every walk starts with the default repetition count
+     */
+    @Benchmark
+    public PrinterTables walk() throws InterruptedException {
+        return new PrinterTableWalker().walk("127.0.0.1", agent);
+    }
+
+    @Benchmark
+    public PrinterDevice applyTables() {
+        PrinterDevice device = new PrinterDevice();
+        tables.applyTo(device);
+        return device;
+    }
+}
@@ -0,0 +1,151 @@
+package dev.amine.SNMP;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A contiguous block of IPv4 addresses, held as two ints so that a /16 costs
+ * nothing until its addresses are actually iterated.
+ */
+public final class AddressRange implements Iterable<String> {
+    private final int first;
+    private final int last;
+    private final String label;
+
+    private AddressRange(int first, int last, String label) {
+        this.first = first;
+        this.last = last;
+        this.label = label;
+    }
+
+    /**
+     * Parse a range specification
+     * Accepts CIDR ("10.0.0.0/16"), the legacy three-octet /24 form ("192.168.1"),
+     * a dashed range ("10.0.0.10-10.0.0.50") or a single address
+     *
+     * @param spec The range specification
+     * @return The parsed range
+     * @throws IllegalArgumentException if the specification is not valid
+     */
+    public static AddressRange parse(String spec) {
+        String value = spec.trim();
+        if (value.contains("/")) {
+            String[] parts = value.split("/", 2);
+            return cidr(toInt(parts[0]), parsePrefix(parts[1], value));
+        }
+        if (value.contains("-")) {
+            String[] parts = value.split("-", 2);
+            int from = toInt(parts[0]);
+            int to = toInt(parts[1]);
+            if (Integer.compareUnsigned(from, to) > 0) {
+                throw new IllegalArgumentException("Empty address range: " + spec);
+            }
+            return new AddressRange(from, to, value);
+        }
+        if (value.split("\\.").length == 3) {
+            return cidr(toInt(value + ".0"), 24);
+        }
+        int address = toInt(value);
+        return new AddressRange(address, address, value);
+    }
+
+    public static AddressRange cidr(int address, int prefix) {
+        if (prefix < 0 || prefix > 32) {
+            throw new IllegalArgumentException("Invalid prefix length: " + prefix);
+        }
+        int mask = prefix == 0 ? 0 : -1 << (32 - prefix);
+        int network = address & mask;
+        int broadcast = network | ~mask;
+        String label = toString(network) + "/" + prefix;
+        // Network and broadcast addresses never answer, except on /31 and /32
+        if (prefix <= 30) {
+            return new AddressRange(network + 1, broadcast - 1, label);
+        }
+        return new AddressRange(network, broadcast, label);
+    }
+
+    public boolean contains(int address) {
+        return Integer.compareUnsigned(address, first) >= 0 && Integer.compareUnsigned(address, last) <= 0;
+    }
+
+    public long size() {
+        return Integer.toUnsignedLong(last) - Integer.toUnsignedLong(first) + 1;
+    }
+
+    /**
+     * Iterate the raw address values without allocating strings
+     */
+    public PrimitiveIterator.OfInt addresses() {
+        return new PrimitiveIterator.OfInt() {
+            private long cursor = Integer.toUnsignedLong(first);
+            private final long end = Integer.toUnsignedLong(last);
+
+            @Override
+            public boolean hasNext() {
+                return cursor <= end;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return (int) cursor++;
+            }
+        };
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        PrimitiveIterator.OfInt addresses = addresses();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return addresses.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return AddressRange.toString(addresses.nextInt());
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    public static int toInt(String ip) {
+        String[] octets = ip.trim().split("\\.");
+        if (octets.length != 4) {
+            throw new IllegalArgumentException("Invalid IPv4 address: " + ip);
+        }
+        int value = 0;
+        for (String octet : octets) {
+            int part;
+            try {
+                part = Integer.parseInt(octet);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid IPv4 address: " + ip);
+            }
+            if (part < 0 || part > 255) {
+                throw new IllegalArgumentException("Invalid IPv4 address: " + ip);
+            }
+            value = (value << 8) | part;
+        }
+        return value;
+    }
+
+    public static String toString(int address) {
+        return ((address >>> 24) & 0xFF) + "." + ((address >>> 16) & 0xFF) + "."
+                + ((address >>> 8) & 0xFF) + "." + (address & 0xFF);
+    }
+
+    private static int parsePrefix(String prefix, String spec) {
+        try {
+            return Integer.parseInt(prefix.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid CIDR block: " + spec);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package dev.amine.SNMP;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public final class AgentConfig {
+
+    private AgentConfig() {
+    }
+
+    /**
+     * Resolve a setting from a JVM system property (printwatch.snmp.sessions)
+     * or, failing that, from the matching environment variable (PRINTWATCH_SNMP_SESSIONS)
+     *
+     * @param key The dotted property name
+     * @return The raw value or null if not set
+     */
+    public static String get(String key) {
+        String value = System.getProperty(key);
+        if (value == null || value.isBlank()) {
+            value = System.getenv(key.toUpperCase().replace('.', '_'));
+        }
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    /**
+     * A setting the agent cannot run without, e.g. a credential
+     *
+     * @throws IllegalStateException If it is not set
+     */
+    public static String require(String key) {
+        String value = get(key);
+        if (value == null) {
+            throw new IllegalStateException("Missing required setting " + key + " (system property or "
+                    + key.toUpperCase().replace('.', '_') + " environment variable)");
+        }
+        return value;
+    }
+
+    public static String getString(String key, String defaultValue) {
+        String value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = get(key);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            log.warn("Invalid integer for {}: '{}', using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = get(key);
+        if (value == null) return defaultValue;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            log.warn("Invalid long for {}: '{}', using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+}
@@ -1,14 +1,30 @@
 package dev.amine.SNMP;
 
 import java.sql.*;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
-public class DatabaseManager {
-    private static final String JDBC_URL = "jdbc:postgresql://eu-central-1.5aeaa3b7-ea91-4f21-9d44-b6bd7e664a91.aws.yugabyte.cloud:5433/yugabyte";
-    private static final String USER = "admin";
-    private static final String PASSWORD = "39qby106r4u1Be3_yEKfr-t1gwptD0";
+public class DatabaseManager implements AutoCloseable {
+    // Connection settings, overridable with printwatch.db.* system properties or PRINTWATCH_DB_* environment variables
+    private static final String JDBC_URL = AgentConfig.getString("printwatch.db.url",
+            "jdbc:postgresql://eu-central-1.5aeaa3b7-ea91-4f21-9d44-b6bd7e664a91.aws.yugabyte.cloud:5433/yugabyte");
+    private static final String USER = AgentConfig.getString("printwatch.db.user", "admin");
+    // No default: the password has to come from the environment, checked when the manager is created
+    private static final String PASSWORD_KEY = "printwatch.db.password";
+
+    // Pool sizing
+    private static final int POOL_MAX_SIZE = AgentConfig.getInt("printwatch.db.pool.maxSize", 10);
+    private static final int POOL_MIN_IDLE = AgentConfig.getInt("printwatch.db.pool.minIdle", 2);
+    private static final long POOL_CONNECTION_TIMEOUT_MS = AgentConfig.getLong("printwatch.db.pool.connectionTimeoutMs", 30000);
+    private static final long POOL_MAX_LIFETIME_MS = AgentConfig.getLong("printwatch.db.pool.maxLifetimeMs", 1800000);
 
     // Default pricing constants
     private static final double DEFAULT_BW_PRICE = 1;
@@ -25,11 +41,105 @@ public class DatabaseManager {
         }
     }
 
+    private static final long TARIF_CACHE_TTL_MINUTES = AgentConfig.getLong("printwatch.db.tarifCacheTtlMinutes", 60);
+
+    // Minimum spacing between two component snapshots, and between two alert batches, of the same printer
+    private static final Duration COMPONENTS_DEDUP_WINDOW = Duration.ofMinutes(30);
+    private static final Duration ALERTS_DEDUP_WINDOW = Duration.ofMinutes(10);
+
+    // Delta mode: write counts only when they move and component levels only when they move by the threshold
+    private static final boolean DELTA_WRITES = AgentConfig.getBoolean("printwatch.db.delta.enabled", true);
+    private static final int DELTA_LEVEL_THRESHOLD_PERCENT = AgentConfig.getInt("printwatch.db.delta.levelThresholdPercent", 5);
+    private static final long DELTA_HEARTBEAT_MINUTES = AgentConfig.getLong("printwatch.db.delta.heartbeatMinutes", 360);
+
+    private static final LatencyHistogram CONNECTION_WAIT = operation("connection_wait");
+    private static final LatencyHistogram WRITE_SCAN = operation("write_scan");
+    private static final LatencyHistogram ENSURE_TARIFS = operation("ensure_tarifs");
+    private static final LatencyHistogram UPSERT_PRINTERS = operation("upsert_printers");
+    private static final LatencyHistogram INSERT_COUNTS = operation("insert_counts");
+    private static final LatencyHistogram INSERT_COMPONENTS = operation("insert_components");
+    private static final LatencyHistogram INSERT_ALERTS = operation("insert_alerts");
+    private static final LatencyHistogram COMMIT = operation("commit");
+    private static final LatencyHistogram TRAP_ALERT = operation("trap_alert");
+    private static final LatencyHistogram FIND_PRINTER = operation("find_printer");
+    private static final LatencyHistogram ACTIVE_ALERTS = operation("active_alerts");
+
+    // Backoff between attempts to bootstrap the write index while the database is unreachable
+    private static final long BOOTSTRAP_RETRY_MIN_MS = 1000;
+    private static final long BOOTSTRAP_RETRY_MAX_MS = 60000;
+
+    private final HikariDataSource dataSource;
+    private final WriteIndex writeIndex = new WriteIndex();
+    private final Thread writeIndexLoader;
+    // Printer IDs by IP address, as last persisted, for events that only carry an address
+    private final Map<String, UUID> printerIdsByIp = new ConcurrentHashMap<>();
+    private final DeltaTracker deltaTracker = DELTA_WRITES
+            ? new DeltaTracker(DELTA_LEVEL_THRESHOLD_PERCENT, DELTA_HEARTBEAT_MINUTES, TimeUnit.MINUTES)
+            : null;
+    private final TarifCache tarifCache = new TarifCache(DatabaseManager::loadTarifModels,
+            TARIF_CACHE_TTL_MINUTES, TimeUnit.MINUTES);
+
+    public DatabaseManager() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("printwatch-db");
+        config.setJdbcUrl(JDBC_URL);
+        config.setUsername(USER);
+        config.setPassword(AgentConfig.require(PASSWORD_KEY));
+        config.setMaximumPoolSize(POOL_MAX_SIZE);
+        config.setMinimumIdle(Math.min(POOL_MIN_IDLE, POOL_MAX_SIZE));
+        config.setConnectionTimeout(POOL_CONNECTION_TIMEOUT_MS);
+        config.setMaxLifetime(POOL_MAX_LIFETIME_MS);
+        // Don't fail agent startup if the database is unreachable, connections are retried on use
+        config.setInitializationFailTimeout(-1);
+        config.setRegisterMbeans(true);
+
+        // Server-side prepared statements, cached per connection by the PostgreSQL driver
+        config.addDataSourceProperty("prepareThreshold", 1);
+        config.addDataSourceProperty("preparedStatementCacheQueries", 256);
+        config.addDataSourceProperty("preparedStatementCacheSizeMiB", 5);
+
+        this.dataSource = new HikariDataSource(config);
+        Metrics.gauge("printwatch_db_pool_active", "Database connections in use", () -> getPoolStats().active());
+        Metrics.gauge("printwatch_db_pool_waiting", "Threads waiting for a database connection",
+                () -> getPoolStats().awaitingConnection());
+        this.writeIndexLoader = Thread.ofPlatform().name("write-index-bootstrap").daemon().start(this::bootstrapWriteIndex);
+    }
+
+    private static LatencyHistogram operation(String name) {
+        return Metrics.histogram("printwatch_db_operation_seconds", "Duration of each database operation", "operation", name);
+    }
+
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(JDBC_URL, USER, PASSWORD);
+        long startedAt = System.nanoTime();
+        try {
+            return dataSource.getConnection();
+        } finally {
+            CONNECTION_WAIT.recordSince(startedAt);
+        }
+    }
+
+    /**
+     * Snapshot of the connection pool usage
+     */
+    public PoolStats getPoolStats() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            return new PoolStats(0, 0, 0, 0);
+        }
+        return new PoolStats(pool.getActiveConnections(), pool.getIdleConnections(),
+                pool.getTotalConnections(), pool.getThreadsAwaitingConnection());
+    }
+
+    public record PoolStats(int active, int idle, int total, int awaitingConnection) {
     }
 
-    public UUID upsertPrinter(PrinterDevice printer) {
+    @Override
+    public void close() {
+        writeIndexLoader.interrupt();
+        dataSource.close();
+    }
+
+    private String resolveModelName(PrinterDevice printer) {
         String modelName = printer.getModelName();
 
         // Handle null or empty model names by using a fallback
@@ -43,15 +153,165 @@ public class DatabaseManager {
             }
             log.info("Generated model name '{}' for printer with IP {}", modelName, printer.getIpAddress());
         }
+        return modelName;
+    }
+
+    private String resolveSerialNumber(PrinterDevice printer) {
+        return printer.getSerialNumber() != null ? printer.getSerialNumber() : "UNKNOWN_" + printer.getIpAddress();
+    }
+
+    /**
+     * Persist a whole scan cycle in one transaction with a fixed number of
+     * round trips, whatever the number of printers: tarifs, printers, counts,
+     * components and alerts each go out as a single array-based statement.
+     *
+     * @param printers The printers of the cycle
+     * @return The printer IDs keyed by IP address, empty if the transaction failed
+     */
+    public Map<String, UUID> persistScan(List<PrinterDevice> printers) {
+        if (printers == null || printers.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try {
+            return writeScan(printers, new Timestamp(System.currentTimeMillis()));
+        } catch (SQLException e) {
+            log.error("Error persisting scan of {} printer(s): {}", printers.size(), e.getMessage(), e);
+        }
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Same as {@link #persistScan} but the failure is left to the caller, so
+     * that a spooled scan can be retried
+     *
+     * @param scannedAt Time of the scan, stamped on the count, component and alert rows
+     */
+    Map<String, UUID> writeScan(List<PrinterDevice> printers, Timestamp scannedAt) throws SQLException {
+        // Serial numbers are the conflict key; a key may only be touched once per statement
+        Map<String, PrinterDevice> bySerial = new LinkedHashMap<>();
+        printers.forEach(printer -> bySerial.put(resolveSerialNumber(printer), printer));
+
+        long scanStartedAt = System.nanoTime();
+        try (Connection conn = getConnection()) {
+            // Outside the transaction, so that a failed reload cannot abort it
+            tarifCache.refreshIfStale(conn);
+            conn.setAutoCommit(false);
+            Map<UUID, PrinterDevice> byId = new LinkedHashMap<>();
+            try {
+                long startedAt = System.nanoTime();
+                List<String> newModels = ensureTarifs(conn, bySerial.values());
+                startedAt = record(ENSURE_TARIFS, startedAt);
+                Map<String, UUID> idsBySerial = upsertPrinters(conn, bySerial);
+                startedAt = record(UPSERT_PRINTERS, startedAt);
+
+                Map<String, UUID> idsByIp = new LinkedHashMap<>();
+                idsBySerial.forEach((serial, id) -> {
+                    PrinterDevice printer = bySerial.get(serial);
+                    byId.put(id, printer);
+                    idsByIp.put(printer.getIpAddress(), id);
+                });
+
+                Set<UUID> withCounts = insertCountsBatch(conn, byId, scannedAt);
+                startedAt = record(INSERT_COUNTS, startedAt);
+                Set<UUID> withComponents = insertComponentsBatch(conn, byId, scannedAt);
+                startedAt = record(INSERT_COMPONENTS, startedAt);
+                Set<UUID> withAlerts = insertAlertsBatch(conn, byId, scannedAt);
+                startedAt = record(INSERT_ALERTS, startedAt);
+
+                conn.commit();
+                record(COMMIT, startedAt);
+                tarifCache.addAll(newModels);
+                printerIdsByIp.putAll(idsByIp);
+                withCounts.forEach(id -> writeIndex.recordWrite(WriteIndex.Table.COUNTS, id));
+                withComponents.forEach(id -> writeIndex.recordWrite(WriteIndex.Table.COMPONENTS, id));
+                withAlerts.forEach(id -> writeIndex.recordWrite(WriteIndex.Table.ALERTS, id));
+                log.debug("Persisted scan of {} printer(s) in one transaction", byId.size());
+                return idsByIp;
+            } catch (SQLException e) {
+                conn.rollback();
+                // The accepted readings were never persisted
+                if (deltaTracker != null) byId.keySet().forEach(deltaTracker::forget);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } finally {
+            WRITE_SCAN.recordSince(scanStartedAt);
+        }
+    }
+
+    /**
+     * Record a step that started at the given time
+     *
+     * @return The end of the step, i.e. the start of the next one
+     */
+    private static long record(LatencyHistogram step, long startedAt) {
+        long now = System.nanoTime();
+        step.record(now - startedAt);
+        return now;
+    }
+
+    /**
+     * Create default tarifs for the models the cache does not know, in one statement
+     *
+     * @return The models that were missing from the cache
+     */
+    private List<String> ensureTarifs(Connection conn, Collection<PrinterDevice> printers) throws SQLException {
+        List<String> missing = printers.stream()
+                .map(this::resolveModelName)
+                .distinct()
+                .filter(model -> !tarifCache.contains(model))
+                .toList();
+        if (missing.isEmpty()) {
+            return missing;
+        }
+
+        String sql = """
+        INSERT INTO tarifs (model_name, bw_print_price, colored_print_price, a3_print_price, a4_print_price)
+        SELECT m, ?, ?, ?, ?
+        FROM unnest(?::text[]) AS m
+        ON CONFLICT (model_name) DO NOTHING
+        """;
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDouble(1, DEFAULT_BW_PRICE);
+            pstmt.setDouble(2, DEFAULT_COLOR_PRICE);
+            pstmt.setDouble(3, DEFAULT_A3_PRICE);
+            pstmt.setDouble(4, DEFAULT_A4_PRICE);
+            pstmt.setArray(5, conn.createArrayOf("text", missing.toArray()));
+            int created = pstmt.executeUpdate();
+            if (created > 0) {
+                log.info("Created default tarifs for {} new model(s)", created);
+            }
+        }
+        return missing;
+    }
 
-        // Ensure the tarif exists for this model
-        if (!tarifExists(modelName)) {
-            createDefaultTarif(modelName);
+    private Map<String, UUID> upsertPrinters(Connection conn, Map<String, PrinterDevice> bySerial) throws SQLException {
+        int size = bySerial.size();
+        String[] models = new String[size];
+        String[] serials = new String[size];
+        String[] macs = new String[size];
+        String[] ips = new String[size];
+        Boolean[] colors = new Boolean[size];
+        Boolean[] a3s = new Boolean[size];
+
+        int i = 0;
+        for (Map.Entry<String, PrinterDevice> entry : bySerial.entrySet()) {
+            PrinterDevice printer = entry.getValue();
+            models[i] = resolveModelName(printer);
+            serials[i] = entry.getKey();
+            macs[i] = printer.getMacAddress();
+            ips[i] = printer.getIpAddress();
+            colors[i] = printer.isColorPrinter();
+            a3s[i] = printer.canPrintA3();
+            i++;
         }
 
         String sql = """
-        INSERT INTO PRINTER (model_name, serial_number, mac_address, ip_address, is_color, is_a3, client_id, last_updated)
-        VALUES (?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)
+        INSERT INTO PRINTER (model_name, serial_number, mac_address, ip_address, is_color, is_a3, last_updated)
+        SELECT m, s, mac, ip, c, a3, CURRENT_TIMESTAMP
+        FROM unnest(?::text[], ?::text[], ?::text[], ?::text[], ?::boolean[], ?::boolean[]) AS t(m, s, mac, ip, c, a3)
         ON CONFLICT (serial_number)
         DO UPDATE SET
             model_name = EXCLUDED.model_name,
@@ -60,80 +320,172 @@ public class DatabaseManager {
             is_color = EXCLUDED.is_color,
             is_a3 = EXCLUDED.is_a3,
             last_updated = CURRENT_TIMESTAMP
-        RETURNING id
+        RETURNING id, serial_number
         """;
 
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setString(1, modelName);
-            pstmt.setString(2, printer.getSerialNumber() != null ? printer.getSerialNumber() : "UNKNOWN_" + printer.getIpAddress());
-            pstmt.setString(3, printer.getMacAddress());
-            pstmt.setString(4, printer.getIpAddress());
-            pstmt.setBoolean(5, printer.isColorPrinter());
-            pstmt.setBoolean(6, printer.canPrintA3());
-            pstmt.setObject(7, null); // No client assigned by default
-
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                UUID printerId = rs.getObject("id", UUID.class);
-                log.debug("Printer upserted successfully with ID: {} for model: {}", printerId, modelName);
-                return printerId;
+        Map<String, UUID> ids = new LinkedHashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setArray(1, conn.createArrayOf("text", models));
+            pstmt.setArray(2, conn.createArrayOf("text", serials));
+            pstmt.setArray(3, conn.createArrayOf("text", macs));
+            pstmt.setArray(4, conn.createArrayOf("text", ips));
+            pstmt.setArray(5, conn.createArrayOf("boolean", colors));
+            pstmt.setArray(6, conn.createArrayOf("boolean", a3s));
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.put(rs.getString("serial_number"), rs.getObject("id", UUID.class));
+                }
             }
-        } catch (SQLException e) {
-            log.error("Error upserting printer {} with model {}: {}", printer.getIpAddress(), modelName, e.getMessage(), e);
         }
-        return null;
+        return ids;
     }
 
     /**
-     * Check if a tarif exists for the given model name
+     * @return The printers that got a count row
      */
-    private boolean tarifExists(String modelName) {
-        String sql = "SELECT COUNT(*) FROM tarifs WHERE model_name = ?";
-
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    private Set<UUID> insertCountsBatch(Connection conn, Map<UUID, PrinterDevice> byId, Timestamp scannedAt) throws SQLException {
+        List<UUID> ids = new ArrayList<>();
+        List<Long> totals = new ArrayList<>();
+        byId.forEach((id, printer) -> {
+            long total = printer.getTotalPageCount() != null ? printer.getTotalPageCount() : 0L;
+            if (deltaTracker != null && !deltaTracker.acceptCount(id, total)) return;
+            ids.add(id);
+            totals.add(total);
+        });
+        if (ids.isEmpty()) return Collections.emptySet();
 
-            pstmt.setString(1, modelName);
-            ResultSet rs = pstmt.executeQuery();
+        String sql = """
+        INSERT INTO COUNTS (printer_id, time_of_update, total_prints)
+        SELECT p, ?, n
+        FROM unnest(?::uuid[], ?::bigint[]) AS t(p, n)
+        """;
 
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
-            }
-        } catch (SQLException e) {
-            log.error("Error checking if tarif exists for model {}: {}", modelName, e.getMessage());
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setTimestamp(1, scannedAt);
+            pstmt.setArray(2, conn.createArrayOf("uuid", ids.toArray()));
+            pstmt.setArray(3, conn.createArrayOf("bigint", totals.toArray()));
+            int rows = pstmt.executeUpdate();
+            log.debug("Inserted {} count(s), {} unchanged", rows, byId.size() - ids.size());
+            return new HashSet<>(ids);
         }
-
-        return false;
     }
 
     /**
-     * Create a default tarif entry for a new model
+     * @return The printers that got component rows
      */
-    private void createDefaultTarif(String modelName) {
+    private Set<UUID> insertComponentsBatch(Connection conn, Map<UUID, PrinterDevice> byId, Timestamp scannedAt) throws SQLException {
+        List<UUID> ids = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Integer> levels = new ArrayList<>();
+        List<Integer> maxLevels = new ArrayList<>();
+        List<String> types = new ArrayList<>();
+
+        byId.forEach((id, printer) -> {
+            // Without delta mode, skip printers that already have recent component data to prevent duplicates
+            if (deltaTracker == null && writeIndex.wasWrittenWithin(WriteIndex.Table.COMPONENTS, id, COMPONENTS_DEDUP_WINDOW)) return;
+            printer.getSupplyLevels().forEach((name, level) -> {
+                int current = level != null ? level : 0;
+                int max = printer.getSupplyMaxLevels().getOrDefault(name, 100);
+                if (deltaTracker != null && !deltaTracker.acceptLevel(id, "SUPPLY", name, current, max)) return;
+                ids.add(id);
+                names.add(name);
+                levels.add(current);
+                maxLevels.add(max);
+                types.add("SUPPLY");
+            });
+            printer.getTrayLevels().forEach((name, level) -> {
+                int current = level != null ? level : 0;
+                int max = printer.getTrayMaxLevels().getOrDefault(name, 100);
+                if (deltaTracker != null && !deltaTracker.acceptLevel(id, "TRAY", name, current, max)) return;
+                ids.add(id);
+                names.add(name);
+                levels.add(current);
+                maxLevels.add(max);
+                types.add("TRAY");
+            });
+        });
+        if (ids.isEmpty()) return Collections.emptySet();
+
         String sql = """
-        INSERT INTO tarifs (model_name, bw_print_price, colored_print_price, a3_print_price, a4_print_price)
-        VALUES (?, ?, ?, ?, ?)
+        INSERT INTO COMPONENTS (printer_id, time_of_update, supply_name, current_level, max_level, supply_type)
+        SELECT p, ?, n, l, m, t
+        FROM unnest(?::uuid[], ?::text[], ?::int[], ?::int[], ?::text[]) AS c(p, n, l, m, t)
         """;
 
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setTimestamp(1, scannedAt);
+            pstmt.setArray(2, conn.createArrayOf("uuid", ids.toArray()));
+            pstmt.setArray(3, conn.createArrayOf("text", names.toArray()));
+            pstmt.setArray(4, conn.createArrayOf("int4", levels.toArray()));
+            pstmt.setArray(5, conn.createArrayOf("int4", maxLevels.toArray()));
+            pstmt.setArray(6, conn.createArrayOf("text", types.toArray()));
+            int rows = pstmt.executeUpdate();
+            Set<UUID> written = new HashSet<>(ids);
+            log.debug("Inserted {} components for {} printer(s)", rows, written.size());
+            return written;
+        }
+    }
 
-            pstmt.setString(1, modelName);
-            pstmt.setDouble(2, DEFAULT_BW_PRICE);
-            pstmt.setDouble(3, DEFAULT_COLOR_PRICE);
-            pstmt.setDouble(4, DEFAULT_A3_PRICE);
-            pstmt.setDouble(5, DEFAULT_A4_PRICE);
+    /**
+     * @return The printers that got alert rows
+     */
+    private Set<UUID> insertAlertsBatch(Connection conn, Map<UUID, PrinterDevice> byId, Timestamp scannedAt) throws SQLException {
+        List<UUID> alertIds = new ArrayList<>();
+        List<String> messages = new ArrayList<>();
+        List<String> alertTypes = new ArrayList<>();
+        List<UUID> printerIds = new ArrayList<>();
+
+        byId.forEach((id, printer) -> {
+            // Skip printers that already raised recent alerts to prevent spam
+            if (writeIndex.wasWrittenWithin(WriteIndex.Table.ALERTS, id, ALERTS_DEDUP_WINDOW)) return;
+            for (String alert : PrinterAlerts.of(printer)) {
+                alertIds.add(UUID.randomUUID());
+                messages.add(alert);
+                alertTypes.add(determineAlertType(alert));
+                printerIds.add(id);
+            }
+        });
+        if (alertIds.isEmpty()) return Collections.emptySet();
 
-            int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected > 0) {
-                log.info("Created default tarif for new model: {} with prices (BW: {}, Color: {}, A3: {}, A4: {})",
-                        modelName, DEFAULT_BW_PRICE, DEFAULT_COLOR_PRICE, DEFAULT_A3_PRICE, DEFAULT_A4_PRICE);
+        String sql = """
+        INSERT INTO ALERTS (id, time_of_update, alert_message, alert_type, printer_id)
+        SELECT i, ?, m, t, p
+        FROM unnest(?::uuid[], ?::text[], ?::text[], ?::uuid[]) AS a(i, m, t, p)
+        """;
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setTimestamp(1, scannedAt);
+            pstmt.setArray(2, conn.createArrayOf("uuid", alertIds.toArray()));
+            pstmt.setArray(3, conn.createArrayOf("text", messages.toArray()));
+            pstmt.setArray(4, conn.createArrayOf("text", alertTypes.toArray()));
+            pstmt.setArray(5, conn.createArrayOf("uuid", printerIds.toArray()));
+            int rows = pstmt.executeUpdate();
+            log.debug("Inserted {} alerts", rows);
+            return new HashSet<>(printerIds);
+        }
+    }
+
+    /**
+     * Load the write index in the background from startup, retrying until the
+     * database answers; until then nothing counts as recent
+     */
+    private void bootstrapWriteIndex() {
+        long retryMs = BOOTSTRAP_RETRY_MIN_MS;
+        while (!writeIndex.isBootstrapped() && !Thread.currentThread().isInterrupted()) {
+            try (Connection conn = getConnection()) {
+                writeIndex.bootstrap(conn);
+                return;
+            } catch (SQLException | RuntimeException e) {
+                if (dataSource.isClosed()) return;
+                log.warn("Could not bootstrap write index, retrying in {} ms: {}", retryMs, e.getMessage());
             }
-        } catch (SQLException e) {
-            log.error("Error creating default tarif for model {}: {}", modelName, e.getMessage());
-            // Don't throw exception here to avoid breaking printer insertion
+            try {
+                Thread.sleep(retryMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            retryMs = Math.min(BOOTSTRAP_RETRY_MAX_MS, retryMs * 2);
         }
     }
 
@@ -157,6 +509,7 @@ public class DatabaseManager {
             pstmt.setString(5, modelName);
 
             int rowsAffected = pstmt.executeUpdate();
+            tarifCache.invalidate(modelName);
             if (rowsAffected > 0) {
                 log.info("Updated tarif for model: {} with new prices", modelName);
                 return true;
@@ -169,149 +522,32 @@ public class DatabaseManager {
     }
 
     /**
-     * Get all models and their tarifs (optional utility method)
+     * Model names that have a tarif, for the tarif cache. Failures are left
+     * to the cache, which keeps what it had.
      */
-    public Map<String, Map<String, Double>> getAllTarifs() {
-        Map<String, Map<String, Double>> tarifs = new HashMap<>();
-        String sql = "SELECT model_name, bw_print_price, colored_print_price, a3_print_price, a4_print_price FROM tarifs";
-
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
+    private static List<String> loadTarifModels(Connection conn) throws SQLException {
+        List<String> models = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT model_name FROM tarifs");
              ResultSet rs = pstmt.executeQuery()) {
-
             while (rs.next()) {
-                String modelName = rs.getString("model_name");
-                Map<String, Double> prices = new HashMap<>();
-                prices.put("bw_price", rs.getDouble("bw_print_price"));
-                prices.put("color_price", rs.getDouble("colored_print_price"));
-                prices.put("a3_price", rs.getDouble("a3_print_price"));
-                prices.put("a4_price", rs.getDouble("a4_print_price"));
-                tarifs.put(modelName, prices);
-            }
-        } catch (SQLException e) {
-            log.error("Error retrieving all tarifs: {}", e.getMessage());
-        }
-
-        return tarifs;
-    }
-
-    public void insertCounts(UUID printerId, PrinterDevice printer) {
-        // Always insert new count record for historical tracking - no duplicate prevention
-        String sql = """
-        INSERT INTO COUNTS (printer_id, time_of_update, total_prints)
-        VALUES (?, CURRENT_TIMESTAMP, ?)
-        """;
-
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setObject(1, printerId);
-            pstmt.setLong(2, printer.getTotalPageCount() != null ? printer.getTotalPageCount() : 0L);
-
-            int rowsAffected = pstmt.executeUpdate();
-            log.debug("Archived new count record for printer {}: {} total prints", printerId,
-                    printer.getTotalPageCount() != null ? printer.getTotalPageCount() : 0L);
-
-        } catch (SQLException e) {
-            log.error("Error archiving counts for printer {}: {}", printerId, e.getMessage(), e);
-        }
-    }
-
-    public void insertSuppliesAndTrays(UUID printerId, PrinterDevice printer) {
-        // Check if we already have recent component data (within last 30 minutes) to prevent duplicates
-        if (hasRecentData(printerId, "COMPONENTS", 30)) {
-            log.debug("Skipping components insert for printer {} - recent data exists", printerId);
-            return;
-        }
-
-        // Use a single timestamp for all components in this batch
-        Timestamp batchTimestamp = new Timestamp(System.currentTimeMillis());
-
-        String sql = """
-        INSERT INTO COMPONENTS (printer_id, time_of_update, supply_name, current_level, max_level, supply_type)
-        VALUES (?, ?, ?, ?, ?, ?)
-        """;
-
-        try (Connection conn = getConnection()) {
-            conn.setAutoCommit(false); // Use transaction to ensure all components are inserted together
-
-            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                int batchCount = 0;
-
-                // Insert supplies (toner/ink)
-                if (printer.getSupplyLevels() != null && !printer.getSupplyLevels().isEmpty()) {
-                    for (Map.Entry<String, Integer> entry : printer.getSupplyLevels().entrySet()) {
-                        String name = entry.getKey();
-                        int currentLevel = entry.getValue() != null ? entry.getValue() : 0;
-                        int maxLevel = printer.getSupplyMaxLevels().getOrDefault(name, 100);
-
-                        pstmt.setObject(1, printerId);
-                        pstmt.setTimestamp(2, batchTimestamp);
-                        pstmt.setString(3, name);
-                        pstmt.setInt(4, currentLevel);
-                        pstmt.setInt(5, maxLevel);
-                        pstmt.setString(6, "SUPPLY");
-                        pstmt.addBatch();
-                        batchCount++;
-                    }
-                }
-
-                // Insert trays (paper)
-                if (printer.getTrayLevels() != null && !printer.getTrayLevels().isEmpty()) {
-                    for (Map.Entry<String, Integer> entry : printer.getTrayLevels().entrySet()) {
-                        String name = entry.getKey();
-                        int currentLevel = entry.getValue() != null ? entry.getValue() : 0;
-                        int maxLevel = printer.getTrayMaxLevels().getOrDefault(name, 100);
-
-                        pstmt.setObject(1, printerId);
-                        pstmt.setTimestamp(2, batchTimestamp);
-                        pstmt.setString(3, name);
-                        pstmt.setInt(4, currentLevel);
-                        pstmt.setInt(5, maxLevel);
-                        pstmt.setString(6, "TRAY");
-                        pstmt.addBatch();
-                        batchCount++;
-                    }
-                }
-
-                // Execute batch if we have any components to insert
-                if (batchCount > 0) {
-                    int[] results = pstmt.executeBatch();
-                    conn.commit();
-                    int successCount = 0;
-                    for (int result : results) {
-                        if (result > 0) successCount++;
-                    }
-                    log.debug("Inserted {} components for printer {} (supplies: {}, trays: {})",
-                            successCount, printerId,
-                            printer.getSupplyLevels() != null ? printer.getSupplyLevels().size() : 0,
-                            printer.getTrayLevels() != null ? printer.getTrayLevels().size() : 0);
-                } else {
-                    conn.commit();
-                    log.debug("No components to insert for printer {}", printerId);
-                }
-
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
+                models.add(rs.getString(1));
             }
-
-        } catch (SQLException e) {
-            log.error("Error inserting components for printer {}: {}", printerId, e.getMessage(), e);
         }
+        return models;
     }
 
-    public void insertAlerts(UUID printerId, List<String> alerts) {
-        if (alerts == null || alerts.isEmpty()) {
-            return;
-        }
-
-        // Check for recent alerts to prevent spam
-        if (hasRecentAlerts(printerId, 10)) {
-            log.debug("Skipping alerts insert for printer {} - recent alerts exist", printerId);
-            return;
+    /**
+     * Store an alert pushed by a printer (trap or inform). Unlike polled
+     * alerts these are events, so they are written as they arrive.
+     *
+     * @return false if the printer is not in the database yet or the insert failed
+     */
+    public boolean insertTrapAlert(String ip, String alert) {
+        long startedAt = System.nanoTime();
+        UUID printerId = findPrinterId(ip);
+        if (printerId == null) {
+            log.debug("Dropping alert from unknown printer {}: {}", ip, alert);
+            return false;
         }
 
         String sql = """
@@ -322,91 +558,47 @@ public class DatabaseManager {
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            int batchCount = 0;
-            for (String alert : alerts) {
-                String type = determineAlertType(alert);
-
-                pstmt.setObject(1, UUID.randomUUID());
-                pstmt.setString(2, alert);
-                pstmt.setString(3, type);
-                pstmt.setObject(4, printerId);
-                pstmt.addBatch();
-                batchCount++;
-            }
-
-            int[] results = pstmt.executeBatch();
-            int successCount = 0;
-            for (int result : results) {
-                if (result > 0) successCount++;
-            }
-            log.debug("Inserted {} alerts for printer {}", successCount, printerId);
-
+            pstmt.setObject(1, UUID.randomUUID());
+            pstmt.setString(2, alert);
+            pstmt.setString(3, determineAlertType(alert));
+            pstmt.setObject(4, printerId);
+            pstmt.executeUpdate();
+            log.debug("Inserted trap alert for printer {}: {}", printerId, alert);
+            return true;
         } catch (SQLException e) {
-            log.error("Error inserting alerts for printer {}: {}", printerId, e.getMessage(), e);
+            log.error("Error inserting trap alert for printer {}: {}", printerId, e.getMessage(), e);
+            return false;
+        } finally {
+            TRAP_ALERT.recordSince(startedAt);
         }
     }
 
-    private boolean hasRecentData(UUID printerId, String tableType, int minutesThreshold) {
-        String sql;
-
-        switch (tableType.toUpperCase()) {
-            case "COUNTS":
-                sql = """
-                SELECT COUNT(*) FROM COUNTS 
-                WHERE printer_id = ? 
-                AND time_of_update >= CURRENT_TIMESTAMP - INTERVAL '%d minutes'
-                """.formatted(minutesThreshold);
-                break;
-            case "COMPONENTS":
-                sql = """
-                SELECT COUNT(*) FROM COMPONENTS 
-                WHERE printer_id = ? 
-                AND time_of_update >= CURRENT_TIMESTAMP - INTERVAL '%d minutes'
-                """.formatted(minutesThreshold);
-                break;
-            default:
-                return false;
-        }
-
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setObject(1, printerId);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
-            }
-
-        } catch (SQLException e) {
-            log.error("Error checking recent data: {}", e.getMessage());
-        }
-
-        return false;
-    }
-
-    private boolean hasRecentAlerts(UUID printerId, int minutesThreshold) {
-        String sql = """
-        SELECT COUNT(*) FROM ALERTS 
-        WHERE printer_id = ? 
-        AND time_of_update >= CURRENT_TIMESTAMP - INTERVAL '%d minutes'
-        """.formatted(minutesThreshold);
+    /**
+     * @return The ID of the printer last seen at the address, or null if there is none
+     */
+    public UUID findPrinterId(String ip) {
+        UUID cached = printerIdsByIp.get(ip);
+        if (cached != null) return cached;
 
+        String sql = "SELECT id FROM PRINTER WHERE ip_address = ? ORDER BY last_updated DESC LIMIT 1";
+        long startedAt = System.nanoTime();
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setObject(1, printerId);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
+            pstmt.setString(1, ip);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    UUID printerId = rs.getObject("id", UUID.class);
+                    printerIdsByIp.put(ip, printerId);
+                    return printerId;
+                }
             }
-
         } catch (SQLException e) {
-            log.error("Error checking recent alerts: {}", e.getMessage());
+            log.error("Error looking up printer at {}: {}", ip, e.getMessage());
+        } finally {
+            FIND_PRINTER.recordSince(startedAt);
         }
-
-        return false;
+        return null;
     }
 
     private String determineAlertType(String alert) {
@@ -436,6 +628,7 @@ public class DatabaseManager {
         ORDER BY a.time_of_update DESC
         """;
 
+        long startedAt = System.nanoTime();
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
@@ -451,6 +644,8 @@ public class DatabaseManager {
 
         } catch (SQLException e) {
             log.error("Error retrieving alerts: {}", e.getMessage(), e);
+        } finally {
+            ACTIVE_ALERTS.recordSince(startedAt);
         }
         return alerts;
     }
@@ -0,0 +1,76 @@
+package dev.amine.SNMP;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Last persisted counter and component levels per printer, used to write
+ * only readings that carry information: a count when the counter moved, a
+ * component level when it moved by at least the threshold (a percentage of
+ * its max level). Every value is still rewritten once per heartbeat interval
+ * so that consumers can tell a quiet printer from a missing one.
+ * <p>
+ * Values are remembered when accepted, before the transaction commits;
+ * callers must {@link #forget} the printer when the write fails.
+ */
+public class DeltaTracker {
+    private final int levelThresholdPercent;
+    private final long heartbeatNanos;
+    private final Map<UUID, Reading> counts = new ConcurrentHashMap<>();
+    private final Map<UUID, Map<String, Reading>> levels = new ConcurrentHashMap<>();
+
+    public DeltaTracker(int levelThresholdPercent, long heartbeat, TimeUnit unit) {
+        this.levelThresholdPercent = Math.max(0, levelThresholdPercent);
+        this.heartbeatNanos = unit.toNanos(heartbeat);
+    }
+
+    /**
+     * @return true if the count should be written, in which case it becomes the last persisted value
+     */
+    public boolean acceptCount(UUID printerId, long total) {
+        long now = System.nanoTime();
+        Reading last = counts.get(printerId);
+        if (last != null && last.value() == total && !isHeartbeatDue(last, now)) {
+            return false;
+        }
+        counts.put(printerId, new Reading(total, now));
+        return true;
+    }
+
+    /**
+     * @param type SUPPLY or TRAY
+     * @return true if the level should be written, in which case it becomes the last persisted value
+     */
+    public boolean acceptLevel(UUID printerId, String type, String name, int level, int maxLevel) {
+        long now = System.nanoTime();
+        Map<String, Reading> printerLevels = levels.computeIfAbsent(printerId, id -> new ConcurrentHashMap<>());
+        String key = type + ':' + name;
+        Reading last = printerLevels.get(key);
+        if (last != null && !isHeartbeatDue(last, now) && !hasMoved((int) last.value(), level, maxLevel)) {
+            return false;
+        }
+        printerLevels.put(key, new Reading(level, now));
+        return true;
+    }
+
+    public void forget(UUID printerId) {
+        counts.remove(printerId);
+        levels.remove(printerId);
+    }
+
+    private boolean isHeartbeatDue(Reading last, long now) {
+        return now - last.writtenAt() >= heartbeatNanos;
+    }
+
+    private boolean hasMoved(int last, int level, int maxLevel) {
+        if (last == level) return false;
+        // Negative levels are RFC 3805 states (unknown, some remaining): any transition matters, as does running empty
+        if (last <= 0 || level <= 0) return true;
+        return (long) Math.abs(level - last) * 100 >= (long) levelThresholdPercent * Math.max(1, maxLevel);
+    }
+
+    private record Reading(long value, long writtenAt) {
+    }
+}
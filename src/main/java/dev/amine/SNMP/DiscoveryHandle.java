@@ -0,0 +1,30 @@
+package dev.amine.SNMP;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Control over a discovery started with {@link PrinterDiscoveryManager#discover}
+ */
+public class DiscoveryHandle {
+    private final CompletableFuture<DiscoveryListener.Progress> completion = new CompletableFuture<>();
+    private volatile boolean cancelled;
+
+    /**
+     * Stop sending to new addresses. Scans already in flight finish but
+     * no longer emit events; onComplete still follows.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Completes with the final progress once the discovery is over
+     */
+    public CompletableFuture<DiscoveryListener.Progress> completion() {
+        return completion;
+    }
+}
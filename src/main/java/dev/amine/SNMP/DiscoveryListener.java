@@ -0,0 +1,53 @@
+package dev.amine.SNMP;
+
+/**
+ * Receives the events of a discovery as they happen. Callbacks arrive
+ * concurrently from scan threads, so implementations must be thread-safe;
+ * a callback that blocks holds its scan slot and slows the sweep down.
+ */
+public interface DiscoveryListener {
+
+    /**
+     * Why an address produced no printer, from least to most specific
+     */
+    enum Failure {
+        TIMEOUT,        // No answer under any community
+        ERROR,          // The request could not be sent or the answer not read
+        NOT_A_PRINTER,  // Answered, but without the printer MIB
+        AUTH_FAILURE    // Answered with noAccess or authorizationError
+    }
+
+    /**
+     * @param scanned Addresses completed so far
+     * @param found   Printers among them
+     * @param failed  Addresses that produced no printer
+     */
+    record Progress(String label, long scanned, long found, long failed, long elapsedMs) {
+    }
+
+    default void onPrinter(PrinterDevice printer) {
+    }
+
+    default void onFailure(String ip, Failure failure) {
+    }
+
+    /**
+     * Called for every address as its scan finishes, before onPrinter or onFailure
+     *
+     * @param elapsedNanos From the scan of the address being started to its result
+     */
+    default void onScanned(String ip, boolean found, long elapsedNanos) {
+    }
+
+    /**
+     * Called about once a second while the discovery runs
+     */
+    default void onProgress(Progress progress) {
+    }
+
+    /**
+     * Called once, after the last in-flight scan finished or was abandoned
+     */
+    default void onComplete(Progress summary, boolean cancelled) {
+    }
+}
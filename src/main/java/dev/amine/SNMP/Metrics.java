@@ -0,0 +1,103 @@
+package dev.amine.SNMP;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide registry of the agent's metrics, read by {@link MetricsExporter}.
+ * Components register what they measure once, typically in a static field
+ * or their constructor, and update it directly on the hot path: a
+ * histogram record or a counter increment, with no lookup.
+ * <p>
+ * Names follow the Prometheus conventions: a family name with a unit
+ * suffix, optionally split by one label.
+ */
+public final class Metrics {
+    public enum Type {COUNTER, GAUGE, HISTOGRAM}
+
+    /**
+     * @param label Label name, or null for a family without labels
+     * @param value For counters and gauges; histograms are read through histogram
+     */
+    public record Metric(String family, String help, Type type, String label, String labelValue,
+                         LatencyHistogram histogram, LongSupplier value) {
+
+        /**
+         * Family and label value, e.g. printwatch_snmp_phase_seconds.table_walk
+         */
+        public String key() {
+            return label == null ? family : family + "." + labelValue;
+        }
+    }
+
+    private static final Map<String, Metric> METRICS = new ConcurrentHashMap<>();
+    // Adders behind the counters the registry keeps itself
+    private static final Map<String, LongAdder> ADDERS = new ConcurrentHashMap<>();
+
+    /**
+     * Values that could not be decoded, from any source: varbinds of any
+     * phase and spooled scan records
+     */
+    public static final LongAdder PARSE_ERRORS = counter("printwatch_parse_errors_total",
+            "Values that could not be decoded");
+
+    private Metrics() {
+    }
+
+    /**
+     * Histogram of durations; registering the same name again returns the existing one
+     */
+    public static LatencyHistogram histogram(String family, String help) {
+        return histogram(family, help, null, null);
+    }
+
+    public static LatencyHistogram histogram(String family, String help, String label, String labelValue) {
+        return METRICS.computeIfAbsent(key(family, labelValue), k -> new Metric(family, help, Type.HISTOGRAM,
+                label, labelValue, new LatencyHistogram(), null)).histogram();
+    }
+
+    /**
+     * Counter kept by the registry; registering the same name again returns the existing one
+     */
+    public static LongAdder counter(String family, String help) {
+        return ADDERS.computeIfAbsent(family, k -> {
+            LongAdder adder = new LongAdder();
+            METRICS.put(family, new Metric(family, help, Type.COUNTER, null, null, null, adder::sum));
+            return adder;
+        });
+    }
+
+    /**
+     * Counter kept by a component, read when metrics are exported. Replaces
+     * an earlier registration, e.g. of a component that was recreated.
+     */
+    public static void counter(String family, String help, LongSupplier value) {
+        METRICS.put(key(family, null), new Metric(family, help, Type.COUNTER, null, null, null, value));
+    }
+
+    /**
+     * Current value read when metrics are exported. Replaces an earlier registration.
+     */
+    public static void gauge(String family, String help, LongSupplier value) {
+        METRICS.put(key(family, null), new Metric(family, help, Type.GAUGE, null, null, null, value));
+    }
+
+    /**
+     * Every metric, grouped by family
+     */
+    public static List<Metric> all() {
+        List<Metric> all = new ArrayList<>(METRICS.values());
+        all.sort(Comparator.comparing(Metric::family)
+                .thenComparing(metric -> metric.labelValue() != null ? metric.labelValue() : ""));
+        return all;
+    }
+
+    private static String key(String family, String labelValue) {
+        return labelValue == null ? family : family + "." + labelValue;
+    }
+}
@@ -0,0 +1,219 @@
+package dev.amine.SNMP;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.management.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Publishes the {@link Metrics} registry over JMX (one MBean,
+ * dev.amine.printwatch:type=Metrics) and as Prometheus text on
+ * http://host:port/metrics. Both read the registry on request; nothing is
+ * computed in between.
+ */
+@Slf4j
+public class MetricsExporter implements AutoCloseable {
+    public static final boolean ENABLED = AgentConfig.getBoolean("printwatch.metrics.enabled", true);
+    // 0 disables the HTTP endpoint while keeping JMX
+    public static final int HTTP_PORT = AgentConfig.getInt("printwatch.metrics.port", 9464);
+    public static final boolean JMX_ENABLED = AgentConfig.getBoolean("printwatch.metrics.jmx", true);
+
+    private static final String OBJECT_NAME = "dev.amine.printwatch:type=Metrics";
+    // Histogram bucket bounds in seconds, from a fast loopback answer to a stuck database
+    private static final double[] BUCKETS = {0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30};
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ObjectName objectName;
+
+    public void start() {
+        if (JMX_ENABLED) {
+            try {
+                objectName = new ObjectName(OBJECT_NAME);
+                MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+                if (mbeans.isRegistered(objectName)) mbeans.unregisterMBean(objectName);
+                mbeans.registerMBean(new MetricsMBean(), objectName);
+                log.info("Metrics registered over JMX as {}", OBJECT_NAME);
+            } catch (JMException e) {
+                log.error("Could not register metrics MBean: {}", e.getMessage(), e);
+                objectName = null;
+            }
+        }
+
+        if (HTTP_PORT > 0) {
+            try {
+                server = HttpServer.create(new InetSocketAddress(HTTP_PORT), 0);
+                serverExecutor = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("metrics-http").daemon().factory());
+                server.setExecutor(serverExecutor);
+                server.createContext("/metrics", this::serve);
+                server.start();
+                log.info("Serving Prometheus metrics on port {} at /metrics", HTTP_PORT);
+            } catch (IOException e) {
+                log.error("Could not serve metrics on port {}: {}", HTTP_PORT, e.getMessage());
+                server = null;
+                if (serverExecutor != null) serverExecutor.shutdown();
+            }
+        }
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET") && !exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = prometheusText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (RuntimeException e) {
+            log.error("Error serving metrics: {}", e.getMessage(), e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * The registry in the Prometheus text exposition format
+     */
+    public static String prometheusText() {
+        StringBuilder out = new StringBuilder(8192);
+        String family = null;
+        for (Metrics.Metric metric : Metrics.all()) {
+            if (!metric.family().equals(family)) {
+                family = metric.family();
+                out.append("# HELP ").append(family).append(' ').append(metric.help()).append('\n');
+                out.append("# TYPE ").append(family).append(' ').append(metric.type().name().toLowerCase()).append('\n');
+            }
+            String labels = metric.label() != null ? metric.label() + "=\"" + metric.labelValue() + "\"" : "";
+            if (metric.type() != Metrics.Type.HISTOGRAM) {
+                appendSample(out, family, labels, null, metric.value().getAsLong());
+                continue;
+            }
+
+            LatencyHistogram histogram = metric.histogram();
+            long count = histogram.getCount();
+            for (double bound : BUCKETS) {
+                long below = Math.min(count, histogram.getCountAtOrBelow((long) (bound * 1e9)));
+                appendSample(out, family + "_bucket", labels, "le=\"" + BigDecimal.valueOf(bound).toPlainString() + "\"", below);
+            }
+            appendSample(out, family + "_bucket", labels, "le=\"+Inf\"", count);
+            out.append(family).append("_sum").append(labels.isEmpty() ? "" : "{" + labels + "}")
+                    .append(' ').append(histogram.getSumNanos() / 1e9).append('\n');
+            appendSample(out, family + "_count", labels, null, count);
+        }
+        return out.toString();
+    }
+
+    private static void appendSample(StringBuilder out, String name, String labels, String extra, long value) {
+        out.append(name);
+        if (!labels.isEmpty() || extra != null) {
+            out.append('{').append(labels);
+            if (!labels.isEmpty() && extra != null) out.append(',');
+            if (extra != null) out.append(extra);
+            out.append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            serverExecutor.shutdown();
+            server = null;
+        }
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                log.debug("Could not unregister metrics MBean: {}", e.getMessage());
+            }
+            objectName = null;
+        }
+    }
+
+    /**
+     * Read-only MBean with one attribute per counter and gauge, and count,
+     * p50, p99 and max (in milliseconds) per histogram
+     */
+    private static final class MetricsMBean implements DynamicMBean {
+
+        private static Map<String, Object> attributes() {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (Metrics.Metric metric : Metrics.all()) {
+                String key = metric.key();
+                if (metric.type() != Metrics.Type.HISTOGRAM) {
+                    values.put(key, metric.value().getAsLong());
+                    continue;
+                }
+                LatencyHistogram histogram = metric.histogram();
+                values.put(key + ".count", histogram.getCount());
+                values.put(key + ".p50Ms", histogram.getValueAtQuantile(0.50) / 1e6);
+                values.put(key + ".p99Ms", histogram.getValueAtQuantile(0.99) / 1e6);
+                values.put(key + ".maxMs", histogram.getMaxNanos() / 1e6);
+            }
+            return values;
+        }
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Object value = attributes().get(attribute);
+            if (value == null) throw new AttributeNotFoundException(attribute);
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] names) {
+            Map<String, Object> values = attributes();
+            AttributeList list = new AttributeList();
+            for (String name : names) {
+                if (values.containsKey(name)) list.add(new Attribute(name, values.get(name)));
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> infos = new ArrayList<>();
+            attributes().forEach((name, value) -> infos.add(new MBeanAttributeInfo(name, value.getClass().getName(),
+                    name, true, false, false)));
+            return new MBeanInfo(MetricsExporter.class.getName(), "PrintWatch agent metrics",
+                    infos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
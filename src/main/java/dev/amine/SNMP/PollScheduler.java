@@ -0,0 +1,237 @@
+package dev.amine.SNMP;
+
+import dev.amine.SNMP.PrinterDiscoveryManager.PollTier;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Polls known printers on per-device due times, one queue entry per printer
+ * and tier: status every minute, counters hourly, full inventory daily. A
+ * printer's first due time in each tier is drawn at random within the tier's
+ * interval and later ones follow at a fixed rate, so polls stay spread out
+ * instead of bunching at the top of each cycle.
+ * <p>
+ * Cheap tiers only refresh part of a printer; the result is merged into the
+ * last complete reading before it is handed to the sink. That reading is
+ * kept as a compact {@link PrinterSnapshot} per printer. Status polls only
+ * reach the sink when the status changed.
+ */
+@Slf4j
+public class PollScheduler implements AutoCloseable {
+    private final PrinterDiscoveryManager discoveryManager;
+    private final Consumer<PrinterDevice> sink;
+    private final Map<PollTier, Long> intervalNanos = new EnumMap<>(PollTier.class);
+    private final DelayQueue<Due> queue = new DelayQueue<>();
+    private final Map<String, Tracked> tracked = new ConcurrentHashMap<>();
+    private final Semaphore inFlight = new Semaphore(Math.max(1, PrinterDiscoveryConfig.POLL_MAX_IN_FLIGHT));
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong answered = new AtomicLong();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    /**
+     * @param sink Receives the merged readings; called on a scan thread
+     */
+    public PollScheduler(PrinterDiscoveryManager discoveryManager, Consumer<PrinterDevice> sink) {
+        this.discoveryManager = discoveryManager;
+        this.sink = sink;
+        intervalNanos.put(PollTier.STATUS, TimeUnit.SECONDS.toNanos(PrinterDiscoveryConfig.POLL_STATUS_SECONDS));
+        intervalNanos.put(PollTier.COUNTERS, TimeUnit.MINUTES.toNanos(PrinterDiscoveryConfig.POLL_COUNTERS_MINUTES));
+        intervalNanos.put(PollTier.INVENTORY, TimeUnit.HOURS.toNanos(PrinterDiscoveryConfig.POLL_INVENTORY_HOURS));
+        this.dispatcher = Thread.ofPlatform().name("poll-scheduler").daemon().start(this::dispatchLoop);
+        Metrics.gauge("printwatch_poll_queue_depth", "Pending poll due times, one per printer and tier", queue::size);
+        Metrics.gauge("printwatch_poll_in_flight", "Polls of known printers waiting for an answer",
+                () -> PrinterDiscoveryConfig.POLL_MAX_IN_FLIGHT - inFlight.availablePermits());
+    }
+
+    /**
+     * Start polling a printer found by a sweep. Tracking it again only
+     * replaces its last reading.
+     */
+    public void track(PrinterDevice device) {
+        String ip = device.getIpAddress();
+        PrinterSnapshot snapshot = PrinterSnapshot.of(device);
+        Tracked current = tracked.get(ip);
+        if (current != null) {
+            current.snapshot = snapshot;
+            return;
+        }
+        Tracked added = new Tracked(snapshot);
+        if (tracked.putIfAbsent(ip, added) != null) return;
+
+        long now = System.nanoTime();
+        intervalNanos.forEach((tier, interval) ->
+                queue.add(new Due(ip, tier, added, now + ThreadLocalRandom.current().nextLong(Math.max(1, interval)))));
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            Due due;
+            try {
+                due = queue.poll(1, TimeUnit.SECONDS);
+                if (due == null) continue;
+                Tracked owner = tracked.get(due.ip);
+                if (owner != due.owner) continue;
+                if (!discoveryManager.getRegistry().contains(due.ip)) {
+                    // Dropped from the registry after too many misses; a sweep will pick it up again
+                    tracked.remove(due.ip, owner);
+                    log.info("Stopped polling {}", due.ip);
+                    continue;
+                }
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            polls.incrementAndGet();
+            try {
+                discoveryManager.poll(due.ip, due.tier).whenComplete((fresh, error) -> {
+                    try {
+                        deliver(due.owner, fresh, due.tier);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                inFlight.release();
+                log.error("Error polling {}: {}", due.ip, e.getMessage(), e);
+            }
+            // Fixed rate from the original due time keeps the spread
+            queue.add(new Due(due.ip, due.tier, due.owner, due.dueAt + intervalNanos.get(due.tier)));
+        }
+    }
+
+    /**
+     * Whether a printer is being polled or still known to the registry; only
+     * such printers are acted on for a trap
+     */
+    public boolean isKnown(String ip) {
+        return tracked.containsKey(ip) || discoveryManager.getRegistry().contains(ip);
+    }
+
+    /**
+     * Poll a tracked printer right away, outside its due times, e.g. because
+     * it sent a trap. Any other address is ignored: new printers are only
+     * found by sweeps. Waits for a slot under the same in-flight limit as the
+     * scheduled polls.
+     */
+    public void pollNow(String ip, PollTier tier) {
+        Tracked owner = tracked.get(ip);
+        if (owner == null) {
+            log.debug("Not polling {} out of turn, it is not tracked", ip);
+            return;
+        }
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        polls.incrementAndGet();
+        try {
+            discoveryManager.poll(ip, tier).whenComplete((fresh, error) -> {
+                try {
+                    deliver(owner, fresh, tier);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            log.error("Error polling {}: {}", ip, e.getMessage(), e);
+        }
+    }
+
+    private void deliver(Tracked owner, PrinterDevice fresh, PollTier tier) {
+        if (fresh == null) return;
+        try {
+            answered.incrementAndGet();
+            PrinterSnapshot latest = owner.snapshot;
+            // A status poll only matters to the database when the status moved
+            if (tier == PollTier.STATUS && latest != null && latest.getStatus() == fresh.getStatus()) return;
+            PrinterDevice merged = merge(latest, fresh, tier);
+            owner.snapshot = PrinterSnapshot.of(merged);
+            sink.accept(merged);
+        } catch (RuntimeException e) {
+            log.error("Error handing over {} poll of {}: {}", tier, fresh.getIpAddress(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Overlay what the tier read on a copy of the last complete reading
+     */
+    private PrinterDevice merge(PrinterSnapshot latest, PrinterDevice fresh, PollTier tier) {
+        if (tier == PollTier.INVENTORY || latest == null) return fresh;
+
+        if (latest.getStatus() != fresh.getStatus()) {
+            log.info("Printer {} status changed: {} -> {}", fresh.getIpAddress(), latest.getStatus(), fresh.getStatus());
+        }
+        PrinterDevice merged = latest.toDevice();
+        merged.setStatus(fresh.getStatus());
+        if (fresh.getMacAddress() != null) merged.setMacAddress(fresh.getMacAddress());
+        if (fresh.getSerialNumber() != null) merged.setSerialNumber(fresh.getSerialNumber());
+        if (fresh.getVendor() != null) merged.setVendor(fresh.getVendor());
+        if (fresh.getTotalPageCount() != null) merged.setTotalPageCount(fresh.getTotalPageCount());
+        if (tier == PollTier.COUNTERS) {
+            merged.setColorPageCount(fresh.getColorPageCount());
+            merged.setMonoPageCount(fresh.getMonoPageCount());
+            if (vendorInfoFetched(latest, fresh)) merged.setModelName(fresh.getModelName());
+        }
+        return merged;
+    }
+
+    /**
+     * Whether a counters poll read the vendor's model OID, which is where the
+     * inventory tier takes the model name from. Without it the model name is
+     * the sysName, and taking it would flip the stored model between tiers.
+     */
+    private static boolean vendorInfoFetched(PrinterSnapshot latest, PrinterDevice fresh) {
+        VendorPollPlan plan = PrinterDiscoveryConfig.getPollPlan(latest.getVendor());
+        return plan != null && plan == PrinterDiscoveryConfig.getPollPlan(fresh.getVendor());
+    }
+
+    public Stats getStats() {
+        return new Stats(tracked.size(), queue.size(), PrinterDiscoveryConfig.POLL_MAX_IN_FLIGHT - inFlight.availablePermits(),
+                polls.get(), answered.get());
+    }
+
+    /**
+     * @param tracked  Printers being polled
+     * @param queued   Pending due times, one per printer and tier
+     * @param inFlight Polls waiting for an answer
+     */
+    public record Stats(int tracked, int queued, int inFlight, long polls, long answered) {
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+    }
+
+    private static final class Tracked {
+        private volatile PrinterSnapshot snapshot;
+
+        private Tracked(PrinterSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+    }
+
+    private record Due(String ip, PollTier tier, Tracked owner, long dueAt) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAt, ((Due) other).dueAt);
+        }
+    }
+}
@@ -2,36 +2,67 @@ package dev.amine.SNMP;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
 import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.InterfaceAddress;
 import java.net.NetworkInterface;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 @Slf4j
 public class PrintWatchAgent {
-    private static final DatabaseManager dbManager = new DatabaseManager();
-    private static PrinterDiscoveryManager discoveryManager = new PrinterDiscoveryManager();
+    // Created in main once the mode is known, so a load test opens no pool, spool, trap port or metrics endpoint
+    private static DatabaseManager dbManager;
+    // Scans hand their results to the spool and move on; it replays them to the database
+    private static ScanSpool spool;
+    // Printers are stored as they are found, while the scan carries on; it only waits on the spool, not the database
+    private static ScanWriter writer;
+    private static PrinterDiscoveryManager discoveryManager;
+    // Known printers are polled on their own due times, tier by tier
+    private static PollScheduler pollScheduler;
+    // Printers that push traps get their alerts stored and a poll of their own right away
+    private static TrapReceiver trapReceiver;
+    // Sweeps for new printers run on their own slow cadence
     private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    // Phase latencies, queue depths and error counts over JMX and HTTP
+    private static MetricsExporter metrics;
     public static void main(String[] args) {
-        String subnet = autoDetectSubnet();
-        if (args.length > 0) {
-            subnet = args[0];
+        discoveryManager = new PrinterDiscoveryManager();
+        if (args.length > 0 && args[0].equals("--load-test")) {
+            runLoadTest();
+            return;
+        }
+        dbManager = new DatabaseManager();
+        spool = new ScanSpool(dbManager);
+        writer = new ScanWriter(spool::submit);
+        pollScheduler = new PollScheduler(discoveryManager, writer::accept);
+        trapReceiver = new TrapReceiver(dbManager, pollScheduler);
+        metrics = new MetricsExporter();
+
+        ScanRange range = args.length > 0 ? ScanRange.parse(String.join(",", args)) : autoDetectRange();
+        log.info("Starting network scan for printers on {}...", range);
+        if (MetricsExporter.ENABLED) {
+            metrics.start();
+        }
+        if (PrinterDiscoveryConfig.TRAP_ENABLED) {
+            trapReceiver.start(PrinterDiscoveryConfig.TRAP_PORT);
         }
-        log.info("Starting network scan for printers on {}...", subnet);
-        final String fiinalSubnet = subnet;
         scheduler.scheduleAtFixedRate(() -> {
                 try{
-                    ScanAndProcessPrinters(fiinalSubnet);
+                    ScanAndProcessPrinters(range);
                 }catch(Exception e){
                     log.error("Error during scheduled scan: {}", e.getMessage(), e);
                 }
-        }, 0, 6, TimeUnit.HOURS);
+        }, 0, PrinterDiscoveryConfig.SWEEP_INTERVAL_MINUTES, TimeUnit.MINUTES);
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            trapReceiver.close();
+            pollScheduler.close();
             discoveryManager.shutDown();
             log.info("Shutting down PrintWatchAgent...");
             scheduler.shutdown();
@@ -42,44 +73,130 @@ public class PrintWatchAgent {
             } catch (InterruptedException e) {
                 scheduler.shutdownNow();
             }
+            writer.close();
+            spool.close();
+            dbManager.close();
+            metrics.close();
             log.info("PrintWatchAgent shutdown complete.");
         }));
     }
 
-    private static void ScanAndProcessPrinters(String subnet) {
+    private static void ScanAndProcessPrinters(ScanRange range) {
         try {
-            log.info("Scanning subnet {} for printers...", subnet);
-            List<PrinterDevice> printers=discoveryManager.discoverPrinters(subnet);
+            log.info("Sweeping {} for new printers ({} already known)...", range, discoveryManager.getRegistry().size());
+            List<PrinterDevice> printers=discoveryManager.sweepUnknown(range, printer -> {
+                writer.accept(printer);
+                pollScheduler.track(printer);
+            });
             if (printers.isEmpty()) {
-                log.info("No printers found on the network.");
-                return;
+                log.info("No new printers found on the network.");
+            } else {
+                log.info("\nDiscovered {} new printer(s):", printers.size());
+                processPrinters(printers);
             }
-            log.info("\nDiscovered {} printer(s):", printers.size());
-            printers.forEach(printer -> {
-                try {
-                    UUID printerId = dbManager.upsertPrinter(printer);
-                    if (printerId != null) {
-                        dbManager.insertCounts(printerId, printer);
-                        dbManager.insertSuppliesAndTrays(printerId, printer);
-                        dbManager.insertAlerts(printerId, getPrinterAlerts(printer));
-                    }
-                } catch (Exception e) {
-                    log.warn("Database update failed for {}: {}", printer.getIpAddress(), e.getMessage());
-                }
-                printPrinterDetails(printer);
-            });
-
-            checkForDatabaseAlerts();
-            log.info("Scan complete. Next scan scheduled in 6 hours.");
+            ScanExecutor.Stats stats = discoveryManager.getExecutorStats();
+            log.info("Scan executor: {} completed, {} active, {} waiting, {} rejected (limit {})",
+                    stats.completed(), stats.active(), stats.waiting(), stats.rejected(), stats.concurrency());
+            PollScheduler.Stats polls = pollScheduler.getStats();
+            log.info("Poll scheduler: {} printer(s) tracked, {} of {} poll(s) answered, {} in flight",
+                    polls.tracked(), polls.answered(), polls.polls(), polls.inFlight());
+            log.info("Sweep complete. Next sweep scheduled in {} minutes.", PrinterDiscoveryConfig.SWEEP_INTERVAL_MINUTES);
         } catch (Exception e) {
             log.error("Error during printer scan: {}", e.getMessage(), e);
         }
     }
 
+    /**
+     * Report on a finished cycle; its printers were already handed to the writer during the scan
+     */
+    private static void processPrinters(List<PrinterDevice> printers) {
+        printers.forEach(PrintWatchAgent::printPrinterDetails);
+
+        checkForDatabaseAlerts();
+        ScanWriter.Stats writes = writer.getStats();
+        log.info("Scan writer: {} written, {} failed, {} queued, scanners blocked {} ms",
+                writes.written(), writes.failed(), writes.queued(), writes.blockedMs());
+        DatabaseManager.PoolStats pool = dbManager.getPoolStats();
+        log.info("Database pool: {} active, {} idle, {} total, {} waiting; {} byte(s) spooled",
+                pool.active(), pool.idle(), pool.total(), pool.awaitingConnection(), spool.getBacklogBytes());
+    }
+
+    /**
+     * Scan a simulated fleet on loopback addresses a few times and report
+     * throughput and latency, without a network or a database. The first
+     * round discovers the fleet; later ones find every printer already known,
+     * as the sweeps and polls of a running agent do.
+     */
+    private static void runLoadTest() {
+        int rounds = AgentConfig.getInt("printwatch.loadtest.rounds", 3);
+        try (PrinterSimulator simulator = new PrinterSimulator(PrinterSimulator.Settings.fromConfig())) {
+            ScanRange range = ScanRange.of(simulator.getAddresses());
+            log.info("Load test: {} round(s) over {}, paced at {} pps ({} per subnet)", rounds, range,
+                    PrinterDiscoveryConfig.RATE_LIMIT_PPS, PrinterDiscoveryConfig.SUBNET_RATE_LIMIT_PPS);
+            for (int round = 1; round <= rounds; round++) {
+                runLoadTestRound(round, range, simulator);
+            }
+            logPhaseLatencies();
+        } catch (IOException e) {
+            log.error("Could not start the printer simulator: {}", e.getMessage(), e);
+        } finally {
+            discoveryManager.shutDown();
+        }
+    }
+
+    private static void runLoadTestRound(int round, ScanRange range, PrinterSimulator simulator) {
+        LatencyHistogram interrogations = new LatencyHistogram();
+        LatencyHistogram misses = new LatencyHistogram();
+        Map<DiscoveryListener.Failure, LongAdder> failures = new ConcurrentHashMap<>();
+        PrinterSimulator.Stats before = simulator.getStats();
+        long startedAt = System.nanoTime();
+
+        DiscoveryListener.Progress summary = discoveryManager.discover(range, new DiscoveryListener() {
+            @Override
+            public void onScanned(String ip, boolean found, long elapsedNanos) {
+                (found ? interrogations : misses).record(elapsedNanos);
+            }
+
+            @Override
+            public void onFailure(String ip, Failure failure) {
+                failures.computeIfAbsent(failure, f -> new LongAdder()).increment();
+            }
+        }).completion().join();
+
+        double seconds = Math.max(1e-9, (System.nanoTime() - startedAt) / 1e9);
+        PrinterSimulator.Stats after = simulator.getStats();
+        long packets = after.requests() - before.requests() + after.responses() - before.responses();
+        log.info("Round {}: {} printer(s) of {} address(es) in {} s: {} printers/s, {} packets/s",
+                round, summary.found(), summary.scanned(), String.format("%.2f", seconds),
+                String.format("%.0f", summary.found() / seconds), String.format("%.0f", packets / seconds));
+        log.info("Round {}: interrogation latency p50 {}, p99 {}, max {}", round,
+                interrogations.format(0.50), interrogations.format(0.99),
+                LatencyHistogram.formatNanos(interrogations.getMaxNanos()));
+        if (misses.getCount() > 0) {
+            log.info("Round {}: {} address(es) without a printer {}, given up after p50 {}, p99 {}", round,
+                    misses.getCount(), failures, misses.format(0.50), misses.format(0.99));
+        }
+    }
+
+    /**
+     * Every histogram that recorded something, so a load test shows where the
+     * time of an interrogation went
+     */
+    private static void logPhaseLatencies() {
+        for (Metrics.Metric metric : Metrics.all()) {
+            LatencyHistogram histogram = metric.histogram();
+            if (histogram == null || histogram.getCount() == 0) continue;
+            log.info("{}: {} sample(s), p50 {}, p99 {}, max {}", metric.key(), histogram.getCount(),
+                    histogram.format(0.50), histogram.format(0.99), LatencyHistogram.formatNanos(histogram.getMaxNanos()));
+        }
+        log.info("Timeouts: {}, missing objects: {}, parse errors: {}", PrinterDiscoveryManager.TIMEOUTS.sum(),
+                PrinterDiscoveryManager.NO_SUCH_OBJECT.sum(), Metrics.PARSE_ERRORS.sum());
+    }
+
     // The rest of the file remains unchanged
-    private static String autoDetectSubnet() {
+    private static ScanRange autoDetectRange() {
+        List<AddressRange> ranges = new ArrayList<>();
         try {
-            List<String> subnets = new ArrayList<>();
             Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
             while (interfaces.hasMoreElements()) {
                 NetworkInterface networkInterface = interfaces.nextElement();
@@ -90,43 +207,30 @@ public class PrintWatchAgent {
                 for (InterfaceAddress interfaceAddress : networkInterface.getInterfaceAddresses()) {
                     InetAddress address = interfaceAddress.getAddress();
 
-                    if (address instanceof Inet4Address) {
-                        String ipAddress = address.getHostAddress();
-                        String[] octets = ipAddress.split("\\.");
-                        if (octets.length == 4) {
-                            // Get first three octets as subnet
-                            String subnet = octets[0] + "." + octets[1] + "." + octets[2];
-                            // Ignore local and special subnets
-                            if (!subnet.startsWith("127.") && !subnet.startsWith("169.254")) {
-                                subnets.add(subnet);
-                            }
+                    if (address instanceof Inet4Address && !address.isLinkLocalAddress()
+                            && !address.isLoopbackAddress()) {
+                        int ip = AddressRange.toInt(address.getHostAddress());
+                        int prefix = interfaceAddress.getNetworkPrefixLength();
+                        // Don't sweep a /8 just because an interface is configured that wide
+                        if (prefix < PrinterDiscoveryConfig.AUTO_DETECT_MIN_PREFIX) {
+                            log.info("Interface {} has a /{} network, limiting scan to /{}",
+                                    networkInterface.getName(), prefix, PrinterDiscoveryConfig.AUTO_DETECT_MIN_PREFIX);
+                            prefix = PrinterDiscoveryConfig.AUTO_DETECT_MIN_PREFIX;
                         }
+                        AddressRange range = AddressRange.cidr(ip, prefix);
+                        log.info("Detected network {} on interface {}", range, networkInterface.getName());
+                        ranges.add(range);
                     }
                 }
             }
-
-            // Return the first detected subnet or a default
-            return subnets.isEmpty() ? "192.168.1" : subnets.get(0);
         } catch (Exception e) {
             log.error("Error detecting subnet: {}", e.getMessage(), e);
-            return "192.168.1"; // Default subnet if detection fails
         }
-    }
 
-    private static List<String> getPrinterAlerts(PrinterDevice printer) {
-        List<String> alerts = new ArrayList<>();
-        if (printer.getStatus() == PrinterStatus.DOWN) {
-            alerts.add("ALERT: Printer is DOWN - " + printer.getIpAddress());
-        } else if (printer.getStatus() == PrinterStatus.WARNING) {
-            alerts.add("ALERT: Printer has WARNING status - " + printer.getIpAddress());
-        }
-        if (printer.isLowToner()) {
-            alerts.add("ALERT: Low toner detected - " + printer.getIpAddress());
-        }
-        if (printer.isLowPaper()) {
-            alerts.add("ALERT: Low paper detected - " + printer.getIpAddress());
-        }
-        return alerts;
+        // Default subnet if detection fails
+        return ranges.isEmpty()
+                ? ScanRange.of(AddressRange.parse("192.168.1.0/24"))
+                : new ScanRange(ranges, Collections.emptyList());
     }
 
     private static void printPrinterDetails(PrinterDevice printer) {
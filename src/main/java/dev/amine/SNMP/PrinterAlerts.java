@@ -0,0 +1,32 @@
+package dev.amine.SNMP;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class PrinterAlerts {
+
+    private PrinterAlerts() {
+    }
+
+    /**
+     * Alerts raised by the current state of a printer
+     *
+     * @param printer The printer as last scanned
+     * @return The alert messages, empty if everything is fine
+     */
+    public static List<String> of(PrinterDevice printer) {
+        List<String> alerts = new ArrayList<>();
+        if (printer.getStatus() == PrinterStatus.DOWN) {
+            alerts.add("ALERT: Printer is DOWN - " + printer.getIpAddress());
+        } else if (printer.getStatus() == PrinterStatus.WARNING) {
+            alerts.add("ALERT: Printer has WARNING status - " + printer.getIpAddress());
+        }
+        if (printer.isLowToner()) {
+            alerts.add("ALERT: Low toner detected - " + printer.getIpAddress());
+        }
+        if (printer.isLowPaper()) {
+            alerts.add("ALERT: Low paper detected - " + printer.getIpAddress());
+        }
+        return alerts;
+    }
+}
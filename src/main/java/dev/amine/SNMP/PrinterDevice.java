@@ -2,11 +2,18 @@ package dev.amine.SNMP;
 
 import lombok.*;
 
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
+/**
+ * A printer while it is being interrogated, and on its way to the database.
+ * It is filled by one scan thread and then handed over, so its collections
+ * are plain ones, in the order the printer reported them. The state kept
+ * between polls is a {@link PrinterSnapshot}.
+ */
 @Getter
 @Setter
 @ToString
@@ -14,16 +21,19 @@ import java.util.concurrent.ConcurrentHashMap;
 @NoArgsConstructor
 @AllArgsConstructor
 public class PrinterDevice {
+    // Supplies of these colorants make a color printer
+    static final Pattern COLORANT = Pattern.compile("\\b(cyan|magenta|yellow)\\b", Pattern.CASE_INSENSITIVE);
+
     // Existing supply maps
-    @Builder.Default private Map<String, Integer> supplyLevels = new ConcurrentHashMap<>();
-    @Builder.Default private Map<String, Integer> supplyMaxLevels = new ConcurrentHashMap<>();
-    @Builder.Default private Map<String, String> supplyDescriptions = new ConcurrentHashMap<>();
+    @Builder.Default private Map<String, Integer> supplyLevels = new LinkedHashMap<>();
+    @Builder.Default private Map<String, Integer> supplyMaxLevels = new LinkedHashMap<>();
+    @Builder.Default private Map<String, String> supplyDescriptions = new LinkedHashMap<>();
 
     // Paper tray maps
-    @Builder.Default private Map<String, Integer> trayLevels = new ConcurrentHashMap<>();
-    @Builder.Default private Map<String, Integer> trayMaxLevels = new ConcurrentHashMap<>();
-    @Builder.Default private Map<String, String> trayDescriptions = new ConcurrentHashMap<>();
-    @Builder.Default private Set<String> supportedMediaSizes= new HashSet<>() ;
+    @Builder.Default private Map<String, Integer> trayLevels = new LinkedHashMap<>();
+    @Builder.Default private Map<String, Integer> trayMaxLevels = new LinkedHashMap<>();
+    @Builder.Default private Map<String, String> trayDescriptions = new LinkedHashMap<>();
+    @Builder.Default private Set<String> supportedMediaSizes = new LinkedHashSet<>();
 
     // Basic info
     private String ipAddress;
@@ -31,8 +41,13 @@ public class PrinterDevice {
     private String modelName;
     private String serialNumber;
     private String vendor;
-    private boolean colorPrinter;
 
+    // Derived from the supplies, trays and media by deriveFlags(), read on every write and alert check
+    private boolean colorPrinter;
+    private boolean lowToner;
+    private boolean lowPaper;
+    @Getter(AccessLevel.NONE) private boolean a3;
+    @Getter(AccessLevel.NONE) private boolean a4;
 
     // Page counts
     private Long totalPageCount;
@@ -65,22 +80,6 @@ public class PrinterDevice {
         return (int) Math.min(100, (double) current / max * 100);
     }
 
-    public boolean isLowToner() {
-        return supplyLevels.entrySet().stream()
-                .anyMatch(entry -> {
-                    String name = entry.getKey().toLowerCase();
-                    Integer percentage = getSupplyPercentage(entry.getKey());
-                    return name.contains("toner") && percentage != null && percentage <= 10;
-                });
-    }
-
-    public boolean isLowPaper() {
-        return trayLevels.entrySet().stream()
-                .anyMatch(entry -> {
-                    Integer percentage = getTrayPercentage(entry.getKey());
-                    return percentage != null && percentage <= 10;
-                });
-    }
     public Long getColorPageCount() {
         return colorPageCount != null ? colorPageCount : 0L;
     }
@@ -88,19 +87,34 @@ public class PrinterDevice {
     public Long getMonoPageCount() {
         return monoPageCount != null ? monoPageCount : 0L;
     }
-    public boolean isColorPrinter() {
-        return supplyDescriptions.values().stream()
-                .anyMatch(desc -> desc.toLowerCase().matches(".*\\b(cyan|magenta|yellow)\\b.*"));
-    }
-    public void setColorPrinter(boolean colorPrinter) {
-        this.colorPrinter = colorPrinter;
+    public boolean canPrintA3() {
+        return a3;
     }
-    public boolean canPrintA3(){
-        return supportedMediaSizes.stream()
-                .anyMatch(size -> size.toLowerCase().contains("a3"));
+
+    public boolean canPrintA4() {
+        return a4;
     }
-    public boolean canPrintA4(){
-        return supportedMediaSizes.stream()
-                .anyMatch(size -> size.toLowerCase().contains("a4"));
+
+    /**
+     * Compute the color, low supply and media size flags from the supplies,
+     * trays and media sizes. Called once these are filled in, so the getters
+     * do not go through the names again on every read.
+     */
+    public void deriveFlags() {
+        colorPrinter = supplyDescriptions.values().stream()
+                .anyMatch(desc -> COLORANT.matcher(desc).find());
+        lowToner = supplyLevels.keySet().stream()
+                .anyMatch(name -> {
+                    Integer percentage = getSupplyPercentage(name);
+                    return percentage != null && percentage <= 10
+                            && PrinterSnapshot.ComponentType.ofSupply(name) == PrinterSnapshot.ComponentType.TONER;
+                });
+        lowPaper = trayLevels.keySet().stream()
+                .anyMatch(name -> {
+                    Integer percentage = getTrayPercentage(name);
+                    return percentage != null && percentage <= 10;
+                });
+        a3 = supportedMediaSizes.stream().anyMatch(PrinterSnapshot.MediaSize.A3::matches);
+        a4 = supportedMediaSizes.stream().anyMatch(PrinterSnapshot.MediaSize.A4::matches);
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,10 @@
 package dev.amine.SNMP;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class PrinterDiscoveryConfig {
 
@@ -9,6 +12,7 @@ public class PrinterDiscoveryConfig {
     public static final String PRINTER_MODEL = "1.3.6.1.2.1.43.5.1.1.16.1";
     public static final String SYSTEM_NAME = "1.3.6.1.2.1.1.5.0";
     public static final String SYSTEM_DESCRIPTION = "1.3.6.1.2.1.1.1.0";
+    public static final String SYSTEM_OBJECT_ID = "1.3.6.1.2.1.1.2.0";
     public static final String MAC_ADDRESS = "1.3.6.1.2.1.2.2.1.6.1";
     public static final String PRINTER_STATUS = "1.3.6.1.2.1.25.3.2.1.5.1";
     public static final String SERIAL_NUMBER = "1.3.6.1.2.1.43.5.1.1.17.1";
@@ -22,10 +26,83 @@ public class PrinterDiscoveryConfig {
     public static final String MEDIA_SIZE_SUPPORTED = "1.3.6.1.2.1.43.13.4.1.8"; // prtInputMediaName
 
     // ===== SNMP Community Strings =====
-    public static final String[] COMMUNITY = {"public", "private"};
+    // Candidates tried on unknown hosts, all in parallel; override with printwatch.snmp.communities=public,private,...
+    public static final String[] COMMUNITY = Arrays.stream(
+                    AgentConfig.getString("printwatch.snmp.communities", "public,private").split(","))
+            .map(String::trim)
+            .filter(community -> !community.isEmpty())
+            .distinct()
+            .toArray(String[]::new);
+
+    // ===== Scan Engine =====
+    // Number of shared UDP sessions used for a sweep, independent of the number of addresses
+    public static final int SNMP_SESSIONS = AgentConfig.getInt("printwatch.snmp.sessions", 2);
+    // Maximum number of addresses being scanned at the same time during a sweep
+    public static final int SCAN_MAX_IN_FLIGHT = AgentConfig.getInt("printwatch.scan.maxInFlight", 512);
+    // Threads running the blocking part of each device scan: "virtual" (one virtual thread per device) or "platform"
+    public static final ScanExecutor.Mode SCAN_EXECUTOR_MODE = ScanExecutor.Mode.valueOf(
+            AgentConfig.getString("printwatch.scan.executor", "virtual").toUpperCase());
+    // Device scans allowed to run at the same time
+    public static final int SCAN_CONCURRENCY = AgentConfig.getInt("printwatch.scan.concurrency",
+            SCAN_EXECUTOR_MODE == ScanExecutor.Mode.VIRTUAL ? 1024 : 50);
+    // Upper bound for a whole sweep
+    public static final long SCAN_TIMEOUT_MINUTES = AgentConfig.getLong("printwatch.scan.timeoutMinutes", 30);
+    // Interfaces with a wider prefix than this are only auto-scanned around the local address
+    public static final int AUTO_DETECT_MIN_PREFIX = AgentConfig.getInt("printwatch.scan.autoDetectMinPrefix", 16);
+
+    // UDP port printers are queried on; only changed to point the agent at a simulator
+    public static final int SNMP_PORT = AgentConfig.getInt("printwatch.snmp.port", 161);
+
+    // ===== Request Timeouts =====
+    // Timeout for hosts that never answered; known hosts get a timeout derived from their measured RTT
+    public static final long INITIAL_TIMEOUT_MS = AgentConfig.getLong("printwatch.snmp.initialTimeoutMs", 500);
+    public static final long MIN_TIMEOUT_MS = AgentConfig.getLong("printwatch.snmp.minTimeoutMs", 100);
+    public static final long MAX_TIMEOUT_MS = AgentConfig.getLong("printwatch.snmp.maxTimeoutMs", 5000);
+
+    // ===== Incremental Discovery =====
+    // Known printers are polled directly, each tier at its own interval:
+    // status and alerts, page counters, and the full inventory (supplies, trays, media)
+    public static final long POLL_STATUS_SECONDS = AgentConfig.getLong("printwatch.poll.statusSeconds", 60);
+    public static final long POLL_COUNTERS_MINUTES = AgentConfig.getLong("printwatch.poll.countersMinutes", 60);
+    public static final long POLL_INVENTORY_HOURS = AgentConfig.getLong("printwatch.poll.inventoryHours", 24);
+    // Polls of known printers outstanding at the same time
+    public static final int POLL_MAX_IN_FLIGHT = AgentConfig.getInt("printwatch.poll.maxInFlight", 128);
+    // The rest of the address space is swept for new printers at this (much slower) interval
+    public static final long SWEEP_INTERVAL_MINUTES = AgentConfig.getLong("printwatch.sweep.intervalMinutes", 360);
+    // Consecutive missed polls before a known printer returns to the unknown pool
+    public static final int REGISTRY_MAX_MISSES = AgentConfig.getInt("printwatch.registry.maxMisses", 3);
+
+    // ===== Trap Receiver =====
+    // UDP port for printer traps and informs (162 needs privileges on most systems)
+    public static final boolean TRAP_ENABLED = AgentConfig.getBoolean("printwatch.trap.enabled", true);
+    public static final int TRAP_PORT = AgentConfig.getInt("printwatch.trap.port", 162);
+    // Minimum spacing between two trap-triggered polls of the same printer
+    public static final long TRAP_REPOLL_MIN_SECONDS = AgentConfig.getLong("printwatch.trap.repollMinSeconds", 10);
+    // Traps waiting to be handled; more are dropped
+    public static final int TRAP_QUEUE_CAPACITY = AgentConfig.getInt("printwatch.trap.queueCapacity", 1024);
+    // Forwarders whose snmpTrapAddress (or v1 agent-addr) is taken as the printer's address ("10.0.0.2, 10.0.0.3")
+    public static final Set<String> TRAP_RELAYS = Arrays.stream(
+                    AgentConfig.getString("printwatch.trap.relays", "").split(","))
+            .map(String::trim)
+            .filter(relay -> !relay.isEmpty())
+            .collect(Collectors.toUnmodifiableSet());
+
+    // ===== Probe Pacing =====
+    // Global packet rate and number of outstanding requests across all subnets
+    public static final int RATE_LIMIT_PPS = AgentConfig.getInt("printwatch.rate.pps", 1000);
+    public static final int RATE_LIMIT_MAX_IN_FLIGHT = AgentConfig.getInt("printwatch.rate.maxInFlight", 1024);
+    // Default limits applied to each /24, and per-subnet overrides ("10.20.0.0/16=50:8, ...")
+    public static final int SUBNET_RATE_LIMIT_PPS = AgentConfig.getInt("printwatch.rate.subnetPps", 200);
+    public static final int SUBNET_MAX_IN_FLIGHT = AgentConfig.getInt("printwatch.rate.subnetMaxInFlight", 64);
+    public static final String SUBNET_RATE_LIMITS = AgentConfig.getString("printwatch.rate.subnets", "");
+    // Adaptive mode: back off a subnet when requests to responding hosts start timing out
+    public static final boolean ADAPTIVE_RATE = AgentConfig.getBoolean("printwatch.rate.adaptive", true);
+    public static final double ADAPTIVE_TIMEOUT_RATIO = AgentConfig.getInt("printwatch.rate.adaptiveTimeoutPercent", 10) / 100.0;
+    public static final int ADAPTIVE_MIN_PPS = AgentConfig.getInt("printwatch.rate.adaptiveMinPps", 10);
 
     // ===== Vendor-Specific OIDs =====
     private static final Map<String, Map<String, String>> VENDOR_SPECIFIC_OIDS = new HashMap<>();
+    private static final Map<String, VendorPollPlan> POLL_PLANS = new HashMap<>();
 
     static {
         // HP/Hewlett-Packard OIDs
@@ -77,6 +154,22 @@ public class PrinterDiscoveryConfig {
         genericOids.put("COLOR_PAGE_COUNT", "1.3.6.1.2.1.43.10.2.1.5.1.1");
         genericOids.put("PRINTER_MODEL", PRINTER_MODEL);
         VENDOR_SPECIFIC_OIDS.put("Generic", genericOids);
+
+        VENDOR_SPECIFIC_OIDS.forEach((vendor, oids) -> POLL_PLANS.put(vendor, VendorPollPlan.compile(vendor, oids)));
+    }
+
+    /**
+     * Get the compiled poll plan of a vendor
+     * Falls back to the Generic plan if vendor not found
+     *
+     * @param vendor The printer vendor (HP, Xerox, Canon, etc.)
+     * @return The poll plan, or null if the vendor could not be identified
+     */
+    public static VendorPollPlan getPollPlan(String vendor) {
+        if (vendor == null || vendor.equals(VendorClassifier.UNKNOWN)) {
+            return null;
+        }
+        return POLL_PLANS.getOrDefault(vendor, POLL_PLANS.get("Generic"));
     }
 
     /**
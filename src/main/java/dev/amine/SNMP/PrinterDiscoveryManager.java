@@ -1,386 +1,585 @@
 package dev.amine.SNMP;
 
 import org.snmp4j.*;
-import org.snmp4j.event.ResponseEvent;
 import org.snmp4j.mp.SnmpConstants;
 import org.snmp4j.smi.*;
-import org.snmp4j.transport.DefaultUdpTransportMapping;
-import org.snmp4j.util.*;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 
 @Slf4j
 public class PrinterDiscoveryManager {
-    private static final ExecutorService executor = Executors.newFixedThreadPool(50);
+    // Positions of the basic info OIDs, in request order
+    private static final int SYSTEM_NAME = 0;
+    private static final int SERIAL_NUMBER = 1;
+    private static final int MAC_ADDRESS = 2;
+    private static final int TOTAL_PAGE_COUNT = 3;
+    private static final int PRINTER_STATUS = 4;
+    private static final int SYSTEM_OBJECT_ID = 5;
+
+    private static final OID[] BASIC_INFO_OIDS = {
+            new OID(PrinterDiscoveryConfig.SYSTEM_NAME),
+            new OID(PrinterDiscoveryConfig.SERIAL_NUMBER),
+            new OID(PrinterDiscoveryConfig.MAC_ADDRESS),
+            new OID(PrinterDiscoveryConfig.TOTAL_PAGE_COUNT),
+            new OID(PrinterDiscoveryConfig.PRINTER_STATUS),
+            new OID(PrinterDiscoveryConfig.SYSTEM_OBJECT_ID)
+    };
+    // Position of each basic info OID, looked up with the OID a varbind carries
+    private static final Map<OID, Integer> BASIC_INFO_FIELDS = Map.of(
+            BASIC_INFO_OIDS[SYSTEM_NAME], SYSTEM_NAME,
+            BASIC_INFO_OIDS[SERIAL_NUMBER], SERIAL_NUMBER,
+            BASIC_INFO_OIDS[MAC_ADDRESS], MAC_ADDRESS,
+            BASIC_INFO_OIDS[TOTAL_PAGE_COUNT], TOTAL_PAGE_COUNT,
+            BASIC_INFO_OIDS[PRINTER_STATUS], PRINTER_STATUS,
+            BASIC_INFO_OIDS[SYSTEM_OBJECT_ID], SYSTEM_OBJECT_ID);
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final LatencyHistogram THROTTLE_WAIT = phase("throttle_wait");
+    private static final LatencyHistogram REQUEST = phase("request");
+    private static final LatencyHistogram BASIC_INFO = phase("basic_info");
+    private static final LatencyHistogram COMMUNITY_FALLBACK = phase("community_fallback");
+    private static final LatencyHistogram VENDOR_INFO = phase("vendor_info");
+    private static final LatencyHistogram TABLE_WALK = phase("table_walk");
+    private static final LatencyHistogram INTERROGATION = phase("interrogation");
+    static final LongAdder TIMEOUTS = Metrics.counter("printwatch_snmp_timeouts_total",
+            "SNMP requests left unanswered after all retries");
+    static final LongAdder NO_SUCH_OBJECT = Metrics.counter("printwatch_snmp_no_such_object_total",
+            "Varbinds answered with noSuchObject or noSuchInstance");
+
+    private final SnmpSessionPool sessionPool;
+    private final ScanExecutor executor = new ScanExecutor(PrinterDiscoveryConfig.SCAN_EXECUTOR_MODE,
+            PrinterDiscoveryConfig.SCAN_CONCURRENCY);
+    private final ProbeThrottle throttle = new ProbeThrottle();
+    private final PrinterTableWalker tableWalker = new PrinterTableWalker();
+    private final RttEstimator rttEstimator = new RttEstimator(PrinterDiscoveryConfig.INITIAL_TIMEOUT_MS,
+            PrinterDiscoveryConfig.MIN_TIMEOUT_MS, PrinterDiscoveryConfig.MAX_TIMEOUT_MS);
+    private final PrinterRegistry registry = new PrinterRegistry(PrinterDiscoveryConfig.REGISTRY_MAX_MISSES);
+
+    public PrinterDiscoveryManager() {
+        try {
+            this.sessionPool = new SnmpSessionPool(PrinterDiscoveryConfig.SNMP_SESSIONS);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open SNMP sessions", e);
+        }
+        Metrics.gauge("printwatch_known_printers", "Printers in the registry, polled directly", registry::size);
+    }
 
-    private static boolean isShutdown=false;
+    private static LatencyHistogram phase(String name) {
+        return Metrics.histogram("printwatch_snmp_phase_seconds", "Duration of each SNMP phase of a scan", "phase", name);
+    }
 
     public List<PrinterDevice> discoverPrinters(String subnet) {
-        List<Callable<PrinterDevice>> tasks = new ArrayList<>();
-        for (int i = 1; i <= 254; i++) {
-            String ip = subnet + "." + i;
-            tasks.add(() -> scanPrinter(ip));
-        }
+        return discoverPrinters(ScanRange.parse(subnet));
+    }
 
-        try {
-            return executor.invokeAll(tasks, 5, TimeUnit.MINUTES).stream()
-                    .map(this::getResult)
-                    .filter(Objects::nonNull)
-                    .toList();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return Collections.emptyList();
-        } catch(RejectedExecutionException e){
-            log.error("task rejected , executor is shutdown :{}",e.getMessage());
-            return Collections.emptyList();
-        }
+    public List<PrinterDevice> discoverPrinters(ScanRange range) {
+        return discoverPrinters(range, printer -> {
+        });
     }
-    public static void shutDown(){
-        isShutdown=true;
-        executor.shutdown();
-        try {
-            if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
-                executor.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            executor.shutdownNow();
-            Thread.currentThread().interrupt();
-        }
+
+    /**
+     * Sweep every address of the range, known printers included
+     *
+     * @param onPrinter Called with each printer as soon as it is interrogated,
+     *                  on a scan thread; may block to slow the sweep down
+     */
+    public List<PrinterDevice> discoverPrinters(ScanRange range, Consumer<PrinterDevice> onPrinter) {
+        return collect(range.iterator(), range.toString(), this::scanPrinter, onPrinter);
     }
 
-    private PrinterDevice getResult(Future<PrinterDevice> future) {
-        try {
-            return future.get();
-        } catch (Exception e) {
-            return null;
-        }
+    /**
+     * Sweep every address of the range in the background, streaming printers,
+     * failures and progress to the listener as they happen. Nothing is
+     * collected, so memory stays flat whatever the size of the range.
+     */
+    public DiscoveryHandle discover(ScanRange range, DiscoveryListener listener) {
+        DiscoveryHandle handle = new DiscoveryHandle();
+        Thread.ofPlatform().name("discovery").daemon().start(() -> {
+            try {
+                handle.completion().complete(scanAll(range.iterator(), range.toString(), this::scanPrinter, listener, handle));
+            } catch (RuntimeException e) {
+                handle.completion().completeExceptionally(e);
+            }
+        });
+        return handle;
     }
 
-    private PrinterDevice scanPrinter(String ip) {
-        try (TransportMapping<?> transport = new DefaultUdpTransportMapping()) {
-            transport.listen();
-            Snmp snmp = new Snmp(transport);
-
-            for (String community : PrinterDiscoveryConfig.COMMUNITY) {
-                PrinterDevice device = new PrinterDevice();
-                device.setIpAddress(ip);
-
-                CommunityTarget target = createTarget(ip, community);
-                if (getBasicInfo(snmp, target, device)) {
-                    getVendorSpecificInfo(snmp, target, device);
-                    getTonerInfo(snmp, target, device);
-                    getPaperTrayInfo(snmp, target, device);
-                    determinePrinterType(device);
-                    getMediaSizes(snmp, target, device);
-                    return device;
+    /**
+     * Sweep only the part of the range that holds no known printer. This is
+     * where nearly every request times out, so it runs on a slow cadence.
+     */
+    public List<PrinterDevice> sweepUnknown(ScanRange range, Consumer<PrinterDevice> onPrinter) {
+        Iterator<String> unknown = new Iterator<>() {
+            private final Iterator<String> all = range.iterator();
+            private String pending;
+
+            @Override
+            public boolean hasNext() {
+                while (pending == null && all.hasNext()) {
+                    String ip = all.next();
+                    if (!registry.contains(ip)) pending = ip;
                 }
+                return pending != null;
             }
-        } catch (IOException e) {
-            log.debug("Scan error {}: {}", ip, e.getMessage());
-        }
-        return null;
+
+            @Override
+            public String next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                String ip = pending;
+                pending = null;
+                return ip;
+            }
+        };
+        return collect(unknown, "unknown addresses of " + range, this::scanPrinter, onPrinter);
+    }
+
+    /**
+     * What a poll of a known printer fetches, from cheapest to most complete
+     */
+    public enum PollTier {
+        STATUS,     // Basic info GET: status, total page count
+        COUNTERS,   // Basic info plus the vendor's page counters, in the same GET
+        INVENTORY   // Full interrogation: supplies, trays, media sizes
     }
 
-    private void determinePrinterType(PrinterDevice device) {
-        // Enhanced vendor detection
-        String model = device.getModelName().toLowerCase();
-
-        if (model.contains("versalink")) {
-            device.setVendor("Xerox");
-        } else if (model.contains("konica")) {
-            device.setVendor("Konica Minolta");
-        } else if (model.contains("hp") || model.contains("laserjet")) {
-            device.setVendor("HP");
-        } else if (model.contains("xerox")) {
-            device.setVendor("Xerox");
+    /**
+     * Poll one known printer at the given tier. Only the inventory tier falls
+     * back to other communities; a miss at the counters or inventory tier
+     * counts towards the printer's removal from the registry.
+     *
+     * @return The freshly read device (only the tier's fields are set), or null if it did not answer.
+     * Completes on a scan thread.
+     */
+    public CompletableFuture<PrinterDevice> poll(String ip, PollTier tier) {
+        PrinterRegistry.KnownPrinter known = registry.get(ip);
+        CompletableFuture<ProbeResult> result;
+        if (tier == PollTier.INVENTORY || known == null || known.getCommunity() == null) {
+            result = scanPrinter(ip);
         } else {
-            device.setVendor("Unknown");
+            VendorPollPlan plan = tier == PollTier.COUNTERS ? PrinterDiscoveryConfig.getPollPlan(known.getVendor()) : null;
+            result = probe(ip, known.getCommunity(), true, plan);
         }
-
-        // Improved color detection
-        boolean hasColorSupplies = device.getSupplyDescriptions().values().stream()
-                .anyMatch(desc -> desc.toLowerCase().matches(".*\\b(cyan|magenta|yellow)\\b.*"));
-        device.setColorPrinter(hasColorSupplies);
+        return result.handleAsync((found, error) -> {
+            if (found == null || found.device() == null) {
+                if (tier != PollTier.STATUS) recordMiss(ip);
+                return null;
+            }
+            registry.recordSeen(ip, found.community(), found.device().getVendor());
+            return found.device();
+        }, executor);
     }
 
-    private CommunityTarget createTarget(String ip, String community) {
-        CommunityTarget target = new CommunityTarget();
-        target.setCommunity(new OctetString(community));
-        target.setAddress(new UdpAddress(ip + "/161"));
-        target.setTimeout(1500);
-        target.setRetries(1);
-        target.setVersion(SnmpConstants.version2c);
-        return target;
+    /**
+     * Count a missed poll; a printer dropped from the registry loses its RTT estimate too
+     */
+    private void recordMiss(String ip) {
+        if (registry.recordMiss(ip)) rttEstimator.forget(ip);
     }
 
-    private boolean getBasicInfo(Snmp snmp, CommunityTarget target, PrinterDevice device) throws IOException {
-        PDU pdu = new PDU();
-        pdu.add(new VariableBinding(new OID(PrinterDiscoveryConfig.SYSTEM_NAME)));
-        pdu.add(new VariableBinding(new OID(PrinterDiscoveryConfig.SERIAL_NUMBER)));
-        pdu.add(new VariableBinding(new OID(PrinterDiscoveryConfig.MAC_ADDRESS)));
-        pdu.add(new VariableBinding(new OID(PrinterDiscoveryConfig.TOTAL_PAGE_COUNT)));
-        pdu.add(new VariableBinding(new OID(PrinterDiscoveryConfig.PRINTER_STATUS)));
-        pdu.setType(PDU.GET);
-
-        ResponseEvent response = snmp.send(pdu, target);
-        if (response == null || response.getResponse() == null) return false;
-
-        boolean isPrinter = false;
-
-        for (VariableBinding vb : response.getResponse().getVariableBindings()) {
-            String oid = vb.getOid().toString();
-            Variable variable = vb.getVariable();
+    public PrinterRegistry getRegistry() {
+        return registry;
+    }
 
-            try {
-                if (oid.equals(PrinterDiscoveryConfig.SYSTEM_NAME)) {
-                    device.setModelName(variable.toString());
-                    isPrinter = true;
-                } else if (oid.equals(PrinterDiscoveryConfig.SERIAL_NUMBER)) {
-                    device.setSerialNumber(variable.toString());
-                } else if (oid.equals(PrinterDiscoveryConfig.MAC_ADDRESS)) {
-                    device.setMacAddress(formatMac(variable));
-                } else if (oid.equals(PrinterDiscoveryConfig.TOTAL_PAGE_COUNT)) {
-                    device.setTotalPageCount(Long.parseLong(variable.toString()));
-                    isPrinter = true;
-                } else if (oid.equals(PrinterDiscoveryConfig.PRINTER_STATUS)) {
-                    int statusValue = Integer.parseInt(variable.toString());
-                    device.setStatus(PrinterStatus.fromStatusValue(statusValue));
-                }
-            } catch (NumberFormatException e) {
-                log.debug("Error parsing value for {}: {}", oid, variable.toString());
+    /**
+     * Run a scan to the end and return its printers, handing each one to the
+     * consumer as soon as it is interrogated
+     */
+    private List<PrinterDevice> collect(Iterator<String> addresses, String label,
+                                        Function<String, CompletableFuture<ProbeResult>> scan,
+                                        Consumer<PrinterDevice> onPrinter) {
+        Queue<PrinterDevice> printers = new ConcurrentLinkedQueue<>();
+        scanAll(addresses, label, scan, new DiscoveryListener() {
+            @Override
+            public void onPrinter(PrinterDevice printer) {
+                printers.add(printer);
+                onPrinter.accept(printer);
             }
-        }
-        return isPrinter;
+        }, new DiscoveryHandle());
+        return List.copyOf(printers);
     }
 
-    private void getVendorSpecificInfo(Snmp snmp, CommunityTarget target, PrinterDevice device) {
+    /**
+     * Scan addresses pulled lazily from the iterator, with at most
+     * SCAN_MAX_IN_FLIGHT scans outstanding at any time, so memory stays flat
+     * whatever the size of the range. A listener that blocks keeps its scan
+     * in flight, which throttles the loop.
+     */
+    private DiscoveryListener.Progress scanAll(Iterator<String> addresses, String label,
+                                               Function<String, CompletableFuture<ProbeResult>> scan,
+                                               DiscoveryListener listener, DiscoveryHandle handle) {
+        int window = PrinterDiscoveryConfig.SCAN_MAX_IN_FLIGHT;
+        Semaphore inFlight = new Semaphore(window);
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + TimeUnit.MINUTES.toNanos(PrinterDiscoveryConfig.SCAN_TIMEOUT_MINUTES);
+        AtomicLong scanned = new AtomicLong();
+        AtomicLong found = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        AtomicLong nextProgressAt = new AtomicLong(startedAt + PROGRESS_INTERVAL_NANOS);
+        Function<Long, DiscoveryListener.Progress> progress = now -> new DiscoveryListener.Progress(label,
+                scanned.get(), found.get(), failed.get(), TimeUnit.NANOSECONDS.toMillis(now - startedAt));
+
+        log.debug("Scanning {} (window {})", label, window);
         try {
-            String vendor = device.getVendor();
-            // Only perform vendor-specific queries if vendor is known
-            if (vendor == null || vendor.equals("Unknown")) {
-                return;
-            }
-
-            // Try retrieving the printer model using vendor-specific OID
-            String modelOid = PrinterDiscoveryConfig.getVendorSpecificOid(vendor, "PRINTER_MODEL");
-            if (modelOid != null) {
-                Variable modelVar = getSnmpValue(snmp, target, modelOid);
-                if (modelVar != null && !modelVar.toString().equals("noSuchObject")) {
-                    device.setModelName(modelVar.toString());
+            while (!handle.isCancelled() && addresses.hasNext()) {
+                String ip = addresses.next();
+                if (!inFlight.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    log.warn("Scan of {} timed out before reaching {}", label, ip);
+                    break;
                 }
-            }
-
-            // Try color page count
-            String colorOid = PrinterDiscoveryConfig.getVendorSpecificOid(vendor, "COLOR_PAGE_COUNT");
-            if (colorOid != null) {
-                Variable colorVar = getSnmpValue(snmp, target, colorOid);
-                if (colorVar != null && !colorVar.toString().equals("noSuchObject")) {
+                long scanStartedAt = System.nanoTime();
+                scan.apply(ip).whenComplete((result, error) -> {
                     try {
-                        device.setColorPageCount(Long.parseLong(colorVar.toString()));
-                    } catch (NumberFormatException e) {
-                        log.debug("Error parsing color page count: {}", colorVar.toString());
+                        if (handle.isCancelled()) return;
+                        boolean isPrinter = result != null && result.device() != null;
+                        listener.onScanned(ip, isPrinter, System.nanoTime() - scanStartedAt);
+                        if (isPrinter) {
+                            found.incrementAndGet();
+                            listener.onPrinter(result.device());
+                        } else {
+                            failed.incrementAndGet();
+                            listener.onFailure(ip, result != null ? result.failure() : DiscoveryListener.Failure.ERROR);
+                        }
+                        scanned.incrementAndGet();
+                        long now = System.nanoTime();
+                        long due = nextProgressAt.get();
+                        if (now >= due && nextProgressAt.compareAndSet(due, now + PROGRESS_INTERVAL_NANOS)) {
+                            listener.onProgress(progress.apply(now));
+                        }
+                    } catch (RuntimeException e) {
+                        log.error("Error handing over scan result of {}: {}", ip, e.getMessage(), e);
+                    } finally {
+                        inFlight.release();
                     }
-                }
-            }
-
-            // Try mono page count
-            String monoOid = PrinterDiscoveryConfig.getVendorSpecificOid(vendor, "MONO_PAGE_COUNT");
-            if (monoOid != null) {
-                Variable monoVar = getSnmpValue(snmp, target, monoOid);
-                if (monoVar != null && !monoVar.toString().equals("noSuchObject")) {
-                    try {
-                        device.setMonoPageCount(Long.parseLong(monoVar.toString()));
-                    } catch (NumberFormatException e) {
-                        log.debug("Error parsing mono page count: {}", monoVar.toString());
-                    }
-                }
+                });
             }
-
-            // If color and mono counts are missing but total is available, estimate values
-            if ((device.getColorPageCount() == null || device.getMonoPageCount() == null) &&
-                    device.getTotalPageCount() != null) {
-                if (device.getMonoPageCount() == null) {
-                    device.setMonoPageCount(device.getTotalPageCount());
-                }
-                if (device.getColorPageCount() == null) {
-                    device.setColorPageCount(0L);
-                }
+            // Wait for the tail of the window to drain
+            if (!inFlight.tryAcquire(window, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                log.warn("Scan of {} did not complete within {} minutes", label, PrinterDiscoveryConfig.SCAN_TIMEOUT_MINUTES);
             }
-        } catch (Exception e) {
-            log.debug("Error getting vendor-specific info for {}: {}", device.getIpAddress(), e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            handle.cancel();
         }
-    }
-
-    private Variable getSnmpValue(Snmp snmp, CommunityTarget target, String oidString) {
+        DiscoveryListener.Progress summary = progress.apply(System.nanoTime());
         try {
-            PDU pdu = new PDU();
-            pdu.add(new VariableBinding(new OID(oidString)));
-            pdu.setType(PDU.GET);
-
-            ResponseEvent response = snmp.send(pdu, target);
-            if (response != null && response.getResponse() != null &&
-                    !response.getResponse().getVariableBindings().isEmpty()) {
-                return response.getResponse().getVariableBindings().get(0).getVariable();
-            }
-        } catch (IOException e) {
-            log.debug("Error getting SNMP value for {}: {}", oidString, e.getMessage());
+            listener.onComplete(summary, handle.isCancelled());
+        } catch (RuntimeException e) {
+            log.error("Error completing scan of {}: {}", label, e.getMessage(), e);
         }
-        return null;
+        return summary;
     }
 
-    private void getTonerInfo(Snmp snmp, CommunityTarget target, PrinterDevice device) {
-        try {
-            TableUtils utils = new TableUtils(snmp, new DefaultPDUFactory());
-            OID[] columns = {
-                    new OID(PrinterDiscoveryConfig.TONER_DESCRIPTION),
-                    new OID(PrinterDiscoveryConfig.TONER_LEVELS),
-                    new OID(PrinterDiscoveryConfig.TONER_MAX_LEVELS)
-            };
-
-            List<TableEvent> events = utils.getTable(target, columns, null, null);
-            for (TableEvent event : events) {
-                if (event.isError()) continue;
-
-                VariableBinding[] vbs = event.getColumns();
-                if (vbs.length < 3) continue;
-
-                if (vbs[0].getVariable().toString().equals("noSuchObject") ||
-                        vbs[1].getVariable().toString().equals("noSuchObject") ||
-                        vbs[2].getVariable().toString().equals("noSuchObject")) {
-                    continue;
-                }
+    public void shutDown(){
+        executor.shutdown(60, TimeUnit.SECONDS);
+        sessionPool.close();
+    }
+
+    public ScanExecutor.Stats getExecutorStats() {
+        return executor.getStats();
+    }
 
-                String desc = vbs[0].getVariable().toString().trim();
-                if (desc.isEmpty()) continue;
+    /**
+     * Probe a single address asynchronously. The basic-info GET for every address
+     * of the sweep is in flight at once on the shared sessions; only the hosts
+     * that answer are handed to the executor for the (blocking) full interrogation.
+     */
+    private CompletableFuture<ProbeResult> scanPrinter(String ip) {
+        return resolveCommunity(ip).thenApplyAsync(found -> {
+            if (found.device() == null) {
+                // Only registered printers keep an RTT estimate; a host that answered without being one does not
+                if (!registry.contains(ip)) rttEstimator.forget(ip);
+                return found;
+            }
+            interrogate(found);
+            registry.recordSeen(ip, found.community(), found.device().getVendor());
+            return found;
+        }, executor);
+    }
 
-                try {
-                    int level = vbs[1].getVariable().toInt();
-                    int max = vbs[2].getVariable().toInt();
+    /**
+     * Find a community the host answers to. A known printer is asked with the
+     * community that worked last time and only falls back to the others if that
+     * fails; an unknown host gets every candidate at once, the subnet's learned
+     * community first, and the first valid answer wins.
+     */
+    private CompletableFuture<ProbeResult> resolveCommunity(String ip) {
+        PrinterRegistry.KnownPrinter known = registry.get(ip);
+        if (known != null && known.getCommunity() != null) {
+            String community = known.getCommunity();
+            VendorPollPlan plan = PrinterDiscoveryConfig.getPollPlan(known.getVendor());
+            return probe(ip, community, true, plan)
+                    // Falling back waits on the throttle, which must not happen on the SNMP listener thread
+                    .thenComposeAsync(found -> {
+                        if (found.device() != null) return CompletableFuture.completedFuture(found);
+                        long fallbackStartedAt = System.nanoTime();
+                        return probeParallel(ip, orderedCommunities(registry.getSubnetCommunity(ip), community))
+                                .thenApply(fallback -> {
+                                    COMMUNITY_FALLBACK.recordSince(fallbackStartedAt);
+                                    return fallback.device() != null ? fallback : ProbeResult.mostSpecific(found, fallback);
+                                });
+                    }, executor);
+        }
+        return probeParallel(ip, orderedCommunities(registry.getSubnetCommunity(ip), null));
+    }
 
-                    if (level < 0) level = 0;
-                    if (max <= 0) max = 100;
+    private List<String> orderedCommunities(String preferred, String excluded) {
+        List<String> communities = new ArrayList<>(List.of(PrinterDiscoveryConfig.COMMUNITY));
+        if (preferred != null && communities.remove(preferred)) {
+            communities.add(0, preferred);
+        }
+        communities.remove(excluded);
+        return communities;
+    }
 
-                    device.getSupplyDescriptions().put(desc, desc);
-                    device.getSupplyLevels().put(desc, level);
-                    device.getSupplyMaxLevels().put(desc, max);
-                } catch (Exception e) {
-                    log.debug("Error parsing toner values for {}: {}", desc, e.getMessage());
+    private CompletableFuture<ProbeResult> probeParallel(String ip, List<String> communities) {
+        if (communities.isEmpty()) {
+            return CompletableFuture.completedFuture(ProbeResult.failed(DiscoveryListener.Failure.TIMEOUT));
+        }
+        if (communities.size() == 1) {
+            return probe(ip, communities.get(0), false, null);
+        }
+        CompletableFuture<ProbeResult> winner = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(communities.size());
+        AtomicReference<ProbeResult> failure = new AtomicReference<>();
+        for (String community : communities) {
+            probe(ip, community, false, null).whenComplete((found, error) -> {
+                if (found != null && found.device() != null) {
+                    winner.complete(found);
+                    return;
                 }
-            }
-        } catch (Exception e) {
-            log.debug("Error getting toner info for {}: {}", device.getIpAddress(), e.getMessage());
+                failure.accumulateAndGet(found != null ? found : ProbeResult.failed(DiscoveryListener.Failure.ERROR),
+                        ProbeResult::mostSpecific);
+                if (pending.decrementAndGet() == 0) {
+                    // All candidates failed: report the most telling reason
+                    winner.complete(failure.get());
+                }
+            });
         }
+        return winner;
+    }
+
+    /**
+     * Send the basic info GET under one community. When the vendor of the host
+     * is already known, its poll plan goes out in the same PDU.
+     */
+    private CompletableFuture<ProbeResult> probe(String ip, String community, boolean knownHost, VendorPollPlan plan) {
+        CommunityTarget target = createTarget(ip, community);
+        long startedAt = System.nanoTime();
+        return send(basicInfoPdu(plan), target, ip, knownHost)
+                .handle((response, error) -> {
+                    BASIC_INFO.recordSince(startedAt);
+                    if (error != null) {
+                        log.debug("Scan error {}: {}", ip, error.getMessage());
+                        return ProbeResult.failed(DiscoveryListener.Failure.ERROR);
+                    }
+                    if (response == null) {
+                        return ProbeResult.failed(DiscoveryListener.Failure.TIMEOUT);
+                    }
+                    if (response.getErrorStatus() == PDU.noAccess || response.getErrorStatus() == PDU.authorizationError) {
+                        return ProbeResult.failed(DiscoveryListener.Failure.AUTH_FAILURE);
+                    }
+                    PrinterDevice device = new PrinterDevice();
+                    device.setIpAddress(ip);
+                    if (applyBasicInfo(response, device)) {
+                        if (device.getVendor() == null) {
+                            // No sysObjectID, or one of a vendor the table does not know
+                            device.setVendor(VendorClassifier.ofName(device.getModelName()));
+                        }
+                        boolean vendorInfoFetched = plan != null && plan == PrinterDiscoveryConfig.getPollPlan(device.getVendor());
+                        if (vendorInfoFetched) {
+                            plan.apply(response, device);
+                        }
+                        return new ProbeResult(device, target, community, vendorInfoFetched, null);
+                    }
+                    return ProbeResult.failed(DiscoveryListener.Failure.NOT_A_PRINTER);
+                });
     }
 
-    private void getPaperTrayInfo(Snmp snmp, CommunityTarget target, PrinterDevice device) {
+    /**
+     * Send through the shared sessions once the throttle allows it. Blocks the
+     * calling thread while the global or subnet limits are exhausted.
+     */
+    private CompletableFuture<PDU> send(PDU pdu, CommunityTarget target, String ip, boolean knownHost) {
+        ProbeThrottle.Permit permit;
+        long waitStartedAt = System.nanoTime();
         try {
-            TableUtils utils = new TableUtils(snmp, new DefaultPDUFactory());
-            OID[] columns = {
-                    new OID(PrinterDiscoveryConfig.PAPER_TRAY_DESCRIPTION),
-                    new OID(PrinterDiscoveryConfig.PAPER_TRAY_LEVELS),
-                    new OID(PrinterDiscoveryConfig.PAPER_TRAY_MAX_LEVELS)
-            };
-
-            List<TableEvent> events = utils.getTable(target, columns, null, null);
-            for (TableEvent event : events) {
-                if (event.isError()) continue;
-
-                VariableBinding[] vbs = event.getColumns();
-                if (vbs.length < 3) continue;
-
-                if (vbs[0].getVariable().toString().equals("noSuchObject") ||
-                        vbs[1].getVariable().toString().equals("noSuchObject") ||
-                        vbs[2].getVariable().toString().equals("noSuchObject")) {
-                    continue;
-                }
+            permit = throttle.acquire(ip, knownHost);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        long sentAt = System.nanoTime();
+        THROTTLE_WAIT.record(sentAt - waitStartedAt);
+        return sessionPool.send(pdu, target)
+                .whenComplete((response, error) -> {
+                    permit.release(response == null);
+                    long elapsed = System.nanoTime() - sentAt;
+                    REQUEST.record(elapsed);
+                    if (response != null) {
+                        rttEstimator.sample(ip, TimeUnit.NANOSECONDS.toMillis(elapsed), target.getTimeout());
+                        countMissingObjects(response);
+                    } else {
+                        if (error == null) TIMEOUTS.increment();
+                        if (knownHost) rttEstimator.timedOut(ip);
+                    }
+                });
+    }
 
-                String desc = vbs[0].getVariable().toString().trim();
-                if (desc.isEmpty()) continue;
+    private static void countMissingObjects(PDU response) {
+        for (VariableBinding vb : response.getVariableBindings()) {
+            int syntax = vb.getSyntax();
+            if (syntax == SMIConstants.EXCEPTION_NO_SUCH_OBJECT || syntax == SMIConstants.EXCEPTION_NO_SUCH_INSTANCE) {
+                NO_SUCH_OBJECT.increment();
+            }
+        }
+    }
 
-                try {
-                    int level = vbs[1].getVariable().toInt();
-                    int max = vbs[2].getVariable().toInt();
+    /**
+     * Outcome of a probe: a device, or the reason there is none
+     */
+    private record ProbeResult(PrinterDevice device, CommunityTarget target, String community,
+                               boolean vendorInfoFetched, DiscoveryListener.Failure failure) {
 
-                    if (level < -1) level = 0;
-                    if (max <= 0) max = 100;
+        private static ProbeResult failed(DiscoveryListener.Failure failure) {
+            return new ProbeResult(null, null, null, false, failure);
+        }
 
-                    device.getTrayDescriptions().put(desc, desc);
-                    device.getTrayLevels().put(desc, level);
-                    device.getTrayMaxLevels().put(desc, max);
-                } catch (Exception e) {
-                    log.debug("Error parsing paper tray values for {}: {}", desc, e.getMessage());
-                }
-            }
-        } catch (Exception e) {
-            log.debug("Error getting paper tray info for {}: {}", device.getIpAddress(), e.getMessage());
+        private static ProbeResult mostSpecific(ProbeResult a, ProbeResult b) {
+            if (a == null) return b;
+            if (b == null) return a;
+            return a.failure().compareTo(b.failure()) >= 0 ? a : b;
         }
     }
 
-    private String formatMac(Variable variable) {
-        if (variable == null) return null;
+    private void interrogate(ProbeResult found) {
+        long startedAt = System.nanoTime();
+        CommunityTarget target = found.target();
+        PrinterDevice device = found.device();
+        VendorPollPlan plan = PrinterDiscoveryConfig.getPollPlan(device.getVendor());
+        // Only perform vendor-specific queries if vendor is known and they did not ride along with the probe
+        if (plan != null && !found.vendorInfoFetched()) {
+            getVendorSpecificInfo(target, device, plan);
+        }
+        getTables(target, device);
+        INTERROGATION.recordSince(startedAt);
+    }
 
+    /**
+     * Supplies, trays and media sizes in one interleaved GETBULK walk
+     */
+    private void getTables(CommunityTarget target, PrinterDevice device) {
+        String ip = device.getIpAddress();
+        long startedAt = System.nanoTime();
         try {
-            if (variable instanceof OctetString) {
-                byte[] macBytes = ((OctetString) variable).toByteArray();
-                if (macBytes.length < 6) return null;
-                int start = macBytes.length - 6; // Always take last 6 bytes
-                return String.format("%02X:%02X:%02X:%02X:%02X:%02X",
-                        macBytes[start] & 0xFF,
-                        macBytes[start + 1] & 0xFF,
-                        macBytes[start + 2] & 0xFF,
-                        macBytes[start + 3] & 0xFF,
-                        macBytes[start + 4] & 0xFF,
-                        macBytes[start + 5] & 0xFF);
-            }
-            return variable.toString();
+            tableWalker.walk(ip, pdu -> send(pdu, target, ip, true)).applyTo(device);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
-            log.error("MAC format error: {}", e.getMessage());
-            return null;
+            log.debug("Error getting table info for {}: {}", ip, e.getMessage());
+        } finally {
+            TABLE_WALK.recordSince(startedAt);
         }
     }
-    private void getMediaSizes(Snmp snmp, CommunityTarget target, PrinterDevice device) {
-        try {
-            TableUtils utils = new TableUtils(snmp, new DefaultPDUFactory());
-            OID[] columns = {
-                    new OID(PrinterDiscoveryConfig.MEDIA_SIZE_SUPPORTED)
-            };
 
-            List<TableEvent> events = utils.getTable(target, columns, null, null);
-            for (TableEvent event : events) {
-                if (event.isError()) continue;
+    private CommunityTarget createTarget(String ip, String community) {
+        CommunityTarget target = new CommunityTarget();
+        target.setCommunity(new OctetString(community));
+        target.setAddress(new UdpAddress(ip + "/" + PrinterDiscoveryConfig.SNMP_PORT));
+        target.setTimeout(rttEstimator.timeoutFor(ip));
+        target.setRetries(rttEstimator.retriesFor(ip));
+        target.setVersion(SnmpConstants.version2c);
+        return target;
+    }
 
-                VariableBinding[] vbs = event.getColumns();
-                if (vbs.length < 1) continue;
+    private PDU basicInfoPdu(VendorPollPlan plan) {
+        PDU pdu = new PDU();
+        for (OID oid : BASIC_INFO_OIDS) {
+            pdu.add(new VariableBinding(oid));
+        }
+        if (plan != null) {
+            plan.addTo(pdu);
+        }
+        pdu.setType(PDU.GET);
+        return pdu;
+    }
 
-                if (vbs[0].getVariable().toString().equals("noSuchObject")) {
-                    continue;
-                }
+    static boolean applyBasicInfo(PDU response, PrinterDevice device) {
+        boolean isPrinter = false;
 
-                String mediaSize = vbs[0].getVariable().toString().trim();
-                if (!mediaSize.isEmpty()) {
-                    device.getSupportedMediaSizes().add(mediaSize);
-                }
-            }
+        for (VariableBinding vb : response.getVariableBindings()) {
+            // Vendor varbinds riding along in the same response are left to the poll plan
+            Integer field = BASIC_INFO_FIELDS.get(vb.getOid());
+            if (field == null) continue;
+            Variable variable = vb.getVariable();
+            boolean present = SnmpValues.isPresent(variable);
 
-            // If we couldn't get supported media sizes through SNMP,
-            // check the tray names as a fallback
-            if (device.getSupportedMediaSizes().isEmpty()) {
-                device.getTrayDescriptions().forEach((name, desc) -> {
-                    String trayInfo = (name + " " + desc).toLowerCase();
-                    if (trayInfo.contains("a3")) {
-                        device.getSupportedMediaSizes().add("a3");
+            try {
+                switch (field) {
+                    case SYSTEM_NAME -> {
+                        device.setModelName(present ? variable.toString() : null);
+                        isPrinter = true;
                     }
-                    if (trayInfo.contains("a4")) {
-                        device.getSupportedMediaSizes().add("a4");
+                    case SERIAL_NUMBER -> {
+                        if (present) device.setSerialNumber(variable.toString());
                     }
-                });
+                    case MAC_ADDRESS -> {
+                        if (present) device.setMacAddress(SnmpValues.toMacAddress(variable));
+                    }
+                    case TOTAL_PAGE_COUNT -> {
+                        if (present) {
+                            device.setTotalPageCount(SnmpValues.toLong(variable));
+                            isPrinter = true;
+                        }
+                    }
+                    case PRINTER_STATUS -> {
+                        if (present) device.setStatus(PrinterStatus.fromStatusValue(SnmpValues.toInt(variable)));
+                    }
+                    case SYSTEM_OBJECT_ID -> {
+                        if (variable instanceof OID sysObjectId) device.setVendor(VendorClassifier.ofObjectId(sysObjectId));
+                    }
+                    default -> {
+                    }
+                }
+            } catch (NumberFormatException e) {
+                Metrics.PARSE_ERRORS.increment();
+                log.debug("Error parsing value for {}: {}", vb.getOid(), variable);
             }
-        } catch (Exception e) {
-            log.debug("Error getting media sizes for {}: {}", device.getIpAddress(), e.getMessage());
+        }
+        return isPrinter;
+    }
+
+    /**
+     * Fetch every scalar OID of the vendor's poll plan in a single GET
+     */
+    private void getVendorSpecificInfo(CommunityTarget target, PrinterDevice device, VendorPollPlan plan) {
+        long startedAt = System.nanoTime();
+        try {
+            PDU pdu = new PDU();
+            plan.addTo(pdu);
+            pdu.setType(PDU.GET);
+
+            PDU response = send(pdu, target, device.getIpAddress(), true).get();
+            if (response != null) {
+                plan.apply(response, device);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.debug("Error getting vendor-specific info for {}: {}", device.getIpAddress(), e.getMessage());
+        } finally {
+            VENDOR_INFO.recordSince(startedAt);
         }
     }
-}
\ No newline at end of file
+}
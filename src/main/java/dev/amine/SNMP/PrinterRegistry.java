@@ -0,0 +1,105 @@
+package dev.amine.SNMP;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory registry of the printers that answered a previous scan. Known
+ * printers are polled directly; everything else is the "unknown" address
+ * space that only the slow sweep visits. A printer that misses too many polls
+ * in a row is dropped back into the unknown pool.
+ */
+@Slf4j
+public class PrinterRegistry {
+    private final Map<String, KnownPrinter> printers = new ConcurrentHashMap<>();
+    // Last community that worked in each /24, tried first for hosts seen for the first time
+    private final Map<Integer, String> subnetCommunities = new ConcurrentHashMap<>();
+    private final int maxMisses;
+
+    public PrinterRegistry(int maxMisses) {
+        this.maxMisses = Math.max(1, maxMisses);
+    }
+
+    public boolean contains(String ip) {
+        return printers.containsKey(ip);
+    }
+
+    public KnownPrinter get(String ip) {
+        return printers.get(ip);
+    }
+
+    public List<KnownPrinter> getAll() {
+        return List.copyOf(printers.values());
+    }
+
+    public int size() {
+        return printers.size();
+    }
+
+    /**
+     * Record a successful interrogation
+     */
+    public void recordSeen(String ip, String community, String vendor) {
+        KnownPrinter known = printers.computeIfAbsent(ip, key -> {
+            log.debug("Registering printer {}", key);
+            return new KnownPrinter(key);
+        });
+        known.seen(community, vendor);
+        if (community != null) {
+            subnetCommunities.put(subnetKey(ip), community);
+        }
+    }
+
+    public String getSubnetCommunity(String ip) {
+        return subnetCommunities.get(subnetKey(ip));
+    }
+
+    private static int subnetKey(String ip) {
+        return AddressRange.toInt(ip) & 0xFFFFFF00;
+    }
+
+    /**
+     * Record a poll that got no answer
+     *
+     * @return true if the printer has now been dropped from the registry
+     */
+    public boolean recordMiss(String ip) {
+        KnownPrinter known = printers.get(ip);
+        if (known == null) return false;
+        if (known.missed() >= maxMisses) {
+            printers.remove(ip, known);
+            log.info("Printer {} missed {} polls, returning it to the unknown pool", ip, maxMisses);
+            return true;
+        }
+        return false;
+    }
+
+    @Getter
+    public static final class KnownPrinter {
+        private final String ipAddress;
+        private volatile String community;
+        private volatile String vendor;
+        private volatile Instant lastSeen;
+        private volatile int consecutiveMisses;
+
+        private KnownPrinter(String ipAddress) {
+            this.ipAddress = ipAddress;
+        }
+
+        private synchronized void seen(String community, String vendor) {
+            this.community = community;
+            if (vendor != null) this.vendor = vendor;
+            this.lastSeen = Instant.now();
+            this.consecutiveMisses = 0;
+        }
+
+        private synchronized int missed() {
+            return ++consecutiveMisses;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package dev.amine.SNMP;
+
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.PDU;
+import org.snmp4j.asn1.BER;
+import org.snmp4j.asn1.BERInputStream;
+import org.snmp4j.asn1.BEROutputStream;
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.OctetString;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fleet of virtual printers on loopback addresses, for load-testing
+ * discovery on a single machine. Each printer listens on its own address
+ * (127.1.0.1, 127.1.0.2, ...; Linux routes all of 127.0.0.0/8 to the
+ * loopback interface) at the port the agent queries, and serves the MIB of
+ * a {@link SimulatedPrinter}. Responses can be delayed and dropped, and a
+ * share of the fleet can stay silent like hosts that are not printers.
+ * <p>
+ * All sockets are served by one selector thread; delayed responses are sent
+ * from a scheduler thread. Only SNMPv1 and v2c are understood.
+ */
+@Slf4j
+public class PrinterSimulator implements AutoCloseable {
+    private static final int MAX_DATAGRAM = 65535;
+
+    /**
+     * @param printers     Virtual printers to start
+     * @param firstAddress Address of the first printer; the others follow it
+     * @param port         UDP port every printer listens on
+     * @param community    Community the printers answer to; other requests are ignored
+     * @param latencyMs    Fixed delay before each response
+     * @param jitterMs     Random extra delay, up to this much
+     * @param lossPercent  Share of requests dropped without an answer
+     * @param silentPercent Share of printers that never answer
+     * @param supplies     Rows of each printer's supply table
+     * @param trays        Rows of each printer's input table
+     * @param mediaSizes   Rows of each printer's media size column
+     * @param seed         Seed of the fleet's contents, so runs can be repeated
+     */
+    public record Settings(int printers, String firstAddress, int port, String community,
+                           int latencyMs, int jitterMs, int lossPercent, int silentPercent,
+                           int supplies, int trays, int mediaSizes, long seed) {
+
+        public static Settings fromConfig() {
+            return new Settings(
+                    AgentConfig.getInt("printwatch.sim.printers", 1000),
+                    AgentConfig.getString("printwatch.sim.firstAddress", "127.1.0.1"),
+                    PrinterDiscoveryConfig.SNMP_PORT,
+                    AgentConfig.getString("printwatch.sim.community", PrinterDiscoveryConfig.COMMUNITY[0]),
+                    AgentConfig.getInt("printwatch.sim.latencyMs", 2),
+                    AgentConfig.getInt("printwatch.sim.jitterMs", 3),
+                    AgentConfig.getInt("printwatch.sim.lossPercent", 0),
+                    AgentConfig.getInt("printwatch.sim.silentPercent", 0),
+                    AgentConfig.getInt("printwatch.sim.supplies", 4),
+                    AgentConfig.getInt("printwatch.sim.trays", 3),
+                    AgentConfig.getInt("printwatch.sim.mediaSizes", 6),
+                    AgentConfig.getLong("printwatch.sim.seed", 1));
+        }
+    }
+
+    private final Settings settings;
+    private final Selector selector;
+    private final List<DatagramChannel> channels = new ArrayList<>();
+    private final ScheduledExecutorService delayed = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("printer-simulator-reply").daemon().factory());
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong responses = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread loop;
+    private final AddressRange addresses;
+    private volatile boolean running = true;
+
+    /**
+     * Bind every printer of the fleet and start answering. Binding stops at
+     * the first failure, typically the open file limit; the printers bound
+     * until then keep running.
+     */
+    public PrinterSimulator(Settings settings) throws IOException {
+        this.settings = settings;
+        this.selector = Selector.open();
+        Random random = new Random(settings.seed());
+        SimulatedPrinter.Model[] models = SimulatedPrinter.Model.values();
+        int first = AddressRange.toInt(settings.firstAddress());
+        int bound = 0;
+        for (int i = 0; i < settings.printers(); i++) {
+            String ip = AddressRange.toString(first + i);
+            SimulatedPrinter printer = new SimulatedPrinter(models[i % models.length], i % 3 != 2,
+                    settings.supplies(), settings.trays(), settings.mediaSizes(), random);
+            boolean silent = random.nextInt(100) < settings.silentPercent();
+            DatagramChannel channel = null;
+            try {
+                channel = DatagramChannel.open();
+                channel.bind(new InetSocketAddress(InetAddress.getByName(ip), settings.port()));
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ, new Host(printer, silent));
+                channels.add(channel);
+                bound++;
+            } catch (IOException e) {
+                if (channel != null) channel.close();
+                log.error("Simulator could only bind {} of {} printer(s), stopped at {}:{}: {} (raise the open file limit for larger fleets)",
+                        bound, settings.printers(), ip, settings.port(), e.getMessage());
+                break;
+            }
+        }
+        if (bound == 0) {
+            selector.close();
+            delayed.shutdownNow();
+            throw new IOException("No simulated printer could be bound at " + settings.firstAddress() + ":" + settings.port());
+        }
+        this.addresses = AddressRange.parse(settings.firstAddress() + "-" + AddressRange.toString(first + bound - 1));
+        this.loop = Thread.ofPlatform().name("printer-simulator").daemon().start(this::receiveLoop);
+        log.info("Simulating {} printer(s) on {} port {} (latency {}+{} ms, {}% loss, {}% silent)",
+                bound, addresses, settings.port(), settings.latencyMs(), settings.jitterMs(),
+                settings.lossPercent(), settings.silentPercent());
+    }
+
+    /**
+     * Addresses of the printers that were bound
+     */
+    public AddressRange getAddresses() {
+        return addresses;
+    }
+
+    private void receiveLoop() {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_DATAGRAM);
+        while (running) {
+            try {
+                selector.select(1000);
+                for (SelectionKey key : selector.selectedKeys()) {
+                    DatagramChannel channel = (DatagramChannel) key.channel();
+                    Host host = (Host) key.attachment();
+                    SocketAddress sender;
+                    while ((sender = receive(channel, buffer)) != null) {
+                        requests.incrementAndGet();
+                        handle(channel, host, sender, buffer);
+                    }
+                }
+                selector.selectedKeys().clear();
+            } catch (IOException | RuntimeException e) {
+                if (running) log.error("Simulator receive error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private static SocketAddress receive(DatagramChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        SocketAddress sender = channel.receive(buffer);
+        buffer.flip();
+        return sender;
+    }
+
+    private void handle(DatagramChannel channel, Host host, SocketAddress sender, ByteBuffer datagram) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (host.silent || random.nextInt(100) < settings.lossPercent()) {
+            dropped.incrementAndGet();
+            return;
+        }
+
+        ByteBuffer response;
+        try {
+            BERInputStream in = new BERInputStream(datagram);
+            BER.decodeHeader(in, new BER.MutableByte());
+            Integer32 version = new Integer32();
+            version.decodeBER(in);
+            OctetString community = new OctetString();
+            community.decodeBER(in);
+            if (!community.toString().equals(settings.community())) {
+                // Real agents drop requests with a wrong community silently
+                dropped.incrementAndGet();
+                return;
+            }
+            PDU request = new PDU();
+            request.decodeBER(in);
+            response = encode(version, community, host.printer.answer(request));
+        } catch (IOException | RuntimeException e) {
+            log.debug("Simulator could not answer {}: {}", sender, e.getMessage());
+            dropped.incrementAndGet();
+            return;
+        }
+
+        int delay = settings.latencyMs() + (settings.jitterMs() > 0 ? random.nextInt(settings.jitterMs() + 1) : 0);
+        if (delay <= 0) {
+            send(channel, response, sender);
+        } else {
+            delayed.schedule(() -> send(channel, response, sender), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static ByteBuffer encode(Integer32 version, OctetString community, PDU pdu) throws IOException {
+        int length = version.getBERLength() + community.getBERLength() + pdu.getBERLength();
+        ByteBuffer buffer = ByteBuffer.allocate(length + BER.getBERLengthOfLength(length) + 1);
+        BEROutputStream out = new BEROutputStream(buffer);
+        BER.encodeHeader(out, BER.SEQUENCE, length);
+        version.encodeBER(out);
+        community.encodeBER(out);
+        pdu.encodeBER(out);
+        buffer.flip();
+        return buffer;
+    }
+
+    private void send(DatagramChannel channel, ByteBuffer response, SocketAddress recipient) {
+        try {
+            channel.send(response, recipient);
+            responses.incrementAndGet();
+        } catch (IOException e) {
+            log.debug("Simulator could not send to {}: {}", recipient, e.getMessage());
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(channels.size(), requests.get(), responses.get(), dropped.get());
+    }
+
+    /**
+     * @param dropped Requests lost on purpose, sent to a silent printer, or not understood
+     */
+    public record Stats(int printers, long requests, long responses, long dropped) {
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        delayed.shutdownNow();
+        try {
+            loop.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (DatagramChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Error closing simulator socket: {}", e.getMessage());
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            log.debug("Error closing simulator selector: {}", e.getMessage());
+        }
+    }
+
+    private record Host(SimulatedPrinter printer, boolean silent) {
+    }
+}
@@ -0,0 +1,309 @@
+package dev.amine.SNMP;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Compact, immutable reading of one printer, taken once its interrogation is
+ * complete. Supplies and trays are parallel primitive arrays with interned
+ * names, and media sizes are a bitset of the sizes the agent knows, so the
+ * state of a printer takes a few hundred bytes instead of the seven
+ * collections of a {@link PrinterDevice}. This is what the agent keeps in
+ * memory for every printer it polls.
+ */
+public final class PrinterSnapshot {
+    // Total page count not reported
+    private static final long NO_COUNT = -1;
+    private static final ComponentType[] TYPES = ComponentType.values();
+    private static final MediaSize[] SIZES = MediaSize.values();
+
+    public enum ComponentType {
+        TONER, INK, DRUM, WASTE, OTHER_SUPPLY, TRAY;
+
+        private static final Pattern WASTE_NAME = Pattern.compile("waste", Pattern.CASE_INSENSITIVE);
+        private static final Pattern TONER_NAME = Pattern.compile("toner", Pattern.CASE_INSENSITIVE);
+        private static final Pattern INK_NAME = Pattern.compile("ink", Pattern.CASE_INSENSITIVE);
+        private static final Pattern DRUM_NAME = Pattern.compile("drum", Pattern.CASE_INSENSITIVE);
+
+        /**
+         * Kind of supply, from its description
+         */
+        static ComponentType ofSupply(String name) {
+            if (WASTE_NAME.matcher(name).find()) return WASTE;
+            if (TONER_NAME.matcher(name).find()) return TONER;
+            if (INK_NAME.matcher(name).find()) return INK;
+            if (DRUM_NAME.matcher(name).find()) return DRUM;
+            return OTHER_SUPPLY;
+        }
+
+        public boolean isSupply() {
+            return this != TRAY;
+        }
+    }
+
+    /**
+     * Media sizes told apart by the agent; a media or tray name mentions a
+     * size when the size's pattern occurs in it, e.g. "iso-a4" or "A4 Plain"
+     */
+    public enum MediaSize {
+        A3("a3"), A4("a4"), A5("a5"), A6("a6"), B4("b4"), B5("b5"),
+        LETTER("letter"), LEGAL("legal"), TABLOID("tabloid|ledger|11x17"), EXECUTIVE("executive");
+
+        private final Pattern pattern;
+
+        MediaSize(String pattern) {
+            this.pattern = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
+        }
+
+        public boolean matches(String name) {
+            return pattern.matcher(name).find();
+        }
+
+        /**
+         * Bits of the sizes a media or tray name mentions, 0 if none
+         */
+        static int bitsOf(String name) {
+            int bits = 0;
+            for (MediaSize size : SIZES) {
+                if (size.matches(name)) bits |= 1 << size.ordinal();
+            }
+            return bits;
+        }
+
+        public String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final String ipAddress;
+    private final String macAddress;
+    private final String modelName;
+    private final String serialNumber;
+    private final String vendor;
+    private final PrinterStatus status;
+    private final long totalPageCount;
+    private final long colorPageCount;
+    private final long monoPageCount;
+    // Derived once from the components and media, read on every alert check and write
+    private final boolean colorPrinter;
+    private final boolean lowToner;
+    private final boolean lowPaper;
+
+    // One entry per component, supplies first, then trays
+    private final String[] names;
+    private final int[] levels;
+    private final int[] maxLevels;
+    private final byte[] types;
+    private final int mediaSizes;
+
+    private PrinterSnapshot(PrinterDevice device) {
+        this.ipAddress = device.getIpAddress();
+        this.macAddress = device.getMacAddress();
+        this.modelName = intern(device.getModelName());
+        this.serialNumber = device.getSerialNumber();
+        this.vendor = intern(device.getVendor());
+        this.status = device.getStatus();
+        this.totalPageCount = device.getTotalPageCount() != null ? device.getTotalPageCount() : NO_COUNT;
+        this.colorPageCount = device.getColorPageCount();
+        this.monoPageCount = device.getMonoPageCount();
+        Map<String, Integer> supplies = device.getSupplyLevels();
+        Map<String, Integer> trays = device.getTrayLevels();
+        int count = supplies.size() + trays.size();
+        this.names = new String[count];
+        this.levels = new int[count];
+        this.maxLevels = new int[count];
+        this.types = new byte[count];
+        int i = 0;
+        for (Map.Entry<String, Integer> supply : supplies.entrySet()) {
+            String name = supply.getKey();
+            set(i++, name, supply.getValue(), device.getSupplyMaxLevels().get(name), ComponentType.ofSupply(name));
+        }
+        for (Map.Entry<String, Integer> tray : trays.entrySet()) {
+            set(i++, tray.getKey(), tray.getValue(), device.getTrayMaxLevels().get(tray.getKey()), ComponentType.TRAY);
+        }
+
+        int sizes = 0;
+        for (String size : device.getSupportedMediaSizes()) {
+            sizes |= MediaSize.bitsOf(size);
+        }
+        this.mediaSizes = sizes;
+
+        this.colorPrinter = device.isColorPrinter();
+        this.lowToner = isLow(ComponentType.TONER);
+        this.lowPaper = isLow(ComponentType.TRAY);
+    }
+
+    public static PrinterSnapshot of(PrinterDevice device) {
+        return new PrinterSnapshot(device);
+    }
+
+    private void set(int i, String name, Integer level, Integer max, ComponentType type) {
+        names[i] = intern(name);
+        levels[i] = level != null ? level : 0;
+        maxLevels[i] = max != null ? max : 100;
+        types[i] = (byte) type.ordinal();
+    }
+
+    // Supply, tray and model names repeat across a fleet; one copy of each is enough
+    private static String intern(String value) {
+        return value != null ? value.intern() : null;
+    }
+
+    /**
+     * A mutable copy, e.g. to overlay a partial poll on or to hand to the
+     * writer. Media sizes come back as their labels ("a4", "letter"), names
+     * the agent does not know are not kept.
+     */
+    public PrinterDevice toDevice() {
+        Map<String, Integer> supplyLevels = new LinkedHashMap<>();
+        Map<String, Integer> supplyMaxLevels = new LinkedHashMap<>();
+        Map<String, String> supplyDescriptions = new LinkedHashMap<>();
+        Map<String, Integer> trayLevels = new LinkedHashMap<>();
+        Map<String, Integer> trayMaxLevels = new LinkedHashMap<>();
+        Map<String, String> trayDescriptions = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            if (getComponentType(i).isSupply()) {
+                supplyLevels.put(names[i], levels[i]);
+                supplyMaxLevels.put(names[i], maxLevels[i]);
+                supplyDescriptions.put(names[i], names[i]);
+            } else {
+                trayLevels.put(names[i], levels[i]);
+                trayMaxLevels.put(names[i], maxLevels[i]);
+                trayDescriptions.put(names[i], names[i]);
+            }
+        }
+        PrinterDevice device = PrinterDevice.builder()
+                .ipAddress(ipAddress)
+                .macAddress(macAddress)
+                .modelName(modelName)
+                .serialNumber(serialNumber)
+                .vendor(vendor)
+                .colorPrinter(colorPrinter)
+                .lowToner(lowToner)
+                .lowPaper(lowPaper)
+                .a3(canPrintA3())
+                .a4(canPrintA4())
+                .status(status)
+                .totalPageCount(totalPageCount != NO_COUNT ? totalPageCount : null)
+                .colorPageCount(colorPageCount)
+                .monoPageCount(monoPageCount)
+                .supplyLevels(supplyLevels)
+                .supplyMaxLevels(supplyMaxLevels)
+                .supplyDescriptions(supplyDescriptions)
+                .trayLevels(trayLevels)
+                .trayMaxLevels(trayMaxLevels)
+                .trayDescriptions(trayDescriptions)
+                .build();
+        for (MediaSize size : SIZES) {
+            if (supports(size)) device.getSupportedMediaSizes().add(size.label());
+        }
+        return device;
+    }
+
+    public String getIpAddress() {
+        return ipAddress;
+    }
+
+    public String getMacAddress() {
+        return macAddress;
+    }
+
+    public String getModelName() {
+        return modelName;
+    }
+
+    public String getSerialNumber() {
+        return serialNumber;
+    }
+
+    public String getVendor() {
+        return vendor;
+    }
+
+    public PrinterStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return The total page count, or null if the printer did not report it
+     */
+    public Long getTotalPageCount() {
+        return totalPageCount != NO_COUNT ? totalPageCount : null;
+    }
+
+    public long getColorPageCount() {
+        return colorPageCount;
+    }
+
+    public long getMonoPageCount() {
+        return monoPageCount;
+    }
+
+    public boolean isColorPrinter() {
+        return colorPrinter;
+    }
+
+    public int getComponentCount() {
+        return names.length;
+    }
+
+    public String getComponentName(int i) {
+        return names[i];
+    }
+
+    public int getLevel(int i) {
+        return levels[i];
+    }
+
+    public int getMaxLevel(int i) {
+        return maxLevels[i];
+    }
+
+    public ComponentType getComponentType(int i) {
+        return TYPES[types[i]];
+    }
+
+    /**
+     * Level as a percentage of the max level, or -1 if the level is unknown
+     */
+    public int getPercentage(int i) {
+        if (maxLevels[i] <= 0) return -1;
+        return (int) Math.min(100, Math.max(0, (long) levels[i] * 100 / maxLevels[i]));
+    }
+
+    public boolean supports(MediaSize size) {
+        return (mediaSizes & (1 << size.ordinal())) != 0;
+    }
+
+    public boolean canPrintA3() {
+        return supports(MediaSize.A3);
+    }
+
+    public boolean canPrintA4() {
+        return supports(MediaSize.A4);
+    }
+
+    public boolean isLowToner() {
+        return lowToner;
+    }
+
+    public boolean isLowPaper() {
+        return lowPaper;
+    }
+
+    private boolean isLow(ComponentType type) {
+        for (int i = 0; i < names.length; i++) {
+            if (types[i] != type.ordinal()) continue;
+            int percentage = getPercentage(i);
+            if (percentage >= 0 && percentage <= 10) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "PrinterSnapshot(" + ipAddress + ", " + vendor + " " + modelName + ", " + status + ", "
+                + names.length + " component(s))";
+    }
+}
@@ -0,0 +1,118 @@
+package dev.amine.SNMP;
+
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.PDU;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Walks the supply, input and media columns of the Printer-MIB together.
+ * Every GETBULK carries one varbind per column that is not finished yet, so
+ * the seven columns advance side by side instead of in three separate walks.
+ */
+@Slf4j
+public class PrinterTableWalker {
+    // Column positions, shared with PrinterTables
+    static final int SUPPLY_DESCRIPTION = 0;
+    static final int SUPPLY_MAX_LEVEL = 1;
+    static final int SUPPLY_LEVEL = 2;
+    static final int TRAY_MAX_LEVEL = 3;
+    static final int TRAY_LEVEL = 4;
+    static final int TRAY_DESCRIPTION = 5;
+    static final int MEDIA_NAME = 6;
+
+    static final OID[] COLUMNS = {
+            new OID(PrinterDiscoveryConfig.TONER_DESCRIPTION),
+            new OID(PrinterDiscoveryConfig.TONER_MAX_LEVELS),
+            new OID(PrinterDiscoveryConfig.TONER_LEVELS),
+            new OID(PrinterDiscoveryConfig.PAPER_TRAY_MAX_LEVELS),
+            new OID(PrinterDiscoveryConfig.PAPER_TRAY_LEVELS),
+            new OID(PrinterDiscoveryConfig.PAPER_TRAY_DESCRIPTION),
+            new OID(PrinterDiscoveryConfig.MEDIA_SIZE_SUPPORTED)
+    };
+
+    private static final int DEFAULT_MAX_REPETITIONS = 10;
+    private static final int MIN_MAX_REPETITIONS = 4;
+    private static final int MAX_MAX_REPETITIONS = 24;
+    // Guard against agents that never leave a column
+    private static final int MAX_REQUESTS = 64;
+
+    // Largest table seen per host, used to size the next walk of that host
+    private final Map<String, Integer> observedRows = new ConcurrentHashMap<>();
+
+    /**
+     * Sends one request to the printer being walked
+     */
+    @FunctionalInterface
+    public interface RequestSender {
+        CompletableFuture<PDU> send(PDU pdu);
+    }
+
+    public PrinterTables walk(String ip, RequestSender sender) throws InterruptedException {
+        PrinterTables tables = new PrinterTables();
+        OID[] cursor = COLUMNS.clone();
+        boolean[] done = new boolean[COLUMNS.length];
+        int[] active = new int[COLUMNS.length];
+        int maxRepetitions = observedRows.getOrDefault(ip, DEFAULT_MAX_REPETITIONS);
+
+        for (int request = 0; request < MAX_REQUESTS; request++) {
+            int activeCount = 0;
+            PDU pdu = new PDU();
+            pdu.setType(PDU.GETBULK);
+            pdu.setNonRepeaters(0);
+            for (int column = 0; column < COLUMNS.length; column++) {
+                if (done[column]) continue;
+                active[activeCount++] = column;
+                pdu.add(new VariableBinding(cursor[column]));
+            }
+            if (activeCount == 0) {
+                tables.setComplete(true);
+                break;
+            }
+            pdu.setMaxRepetitions(maxRepetitions);
+
+            PDU response;
+            try {
+                response = sender.send(pdu).get();
+            } catch (ExecutionException e) {
+                log.debug("Table walk of {} failed: {}", ip, e.getMessage());
+                break;
+            }
+            if (response == null || response.getErrorStatus() != PDU.noError) {
+                log.debug("Table walk of {} stopped: {}", ip, response == null ? "timeout" : response.getErrorStatusText());
+                break;
+            }
+
+            // Repeaters come back row by row: varbind r * activeCount + j belongs to column active[j]
+            List<? extends VariableBinding> vbs = response.getVariableBindings();
+            for (int j = 0; j < activeCount; j++) {
+                int column = active[j];
+                for (int index = j; index < vbs.size(); index += activeCount) {
+                    VariableBinding vb = vbs.get(index);
+                    OID oid = vb.getOid();
+                    Variable variable = vb.getVariable();
+                    if (variable.isException() || !oid.startsWith(COLUMNS[column]) || oid.compareTo(cursor[column]) <= 0) {
+                        done[column] = true;
+                        break;
+                    }
+                    OID rowIndex = new OID(oid.getValue(), COLUMNS[column].size(), oid.size() - COLUMNS[column].size());
+                    tables.put(column, rowIndex, variable);
+                    cursor[column] = oid;
+                }
+            }
+        }
+
+        int rows = tables.getMaxRows();
+        if (rows > 0) {
+            observedRows.put(ip, Math.max(MIN_MAX_REPETITIONS, Math.min(MAX_MAX_REPETITIONS, rows + 1)));
+        }
+        return tables;
+    }
+}
@@ -0,0 +1,142 @@
+package dev.amine.SNMP;
+
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.Variable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static dev.amine.SNMP.PrinterTableWalker.*;
+
+/**
+ * Decoded result of a combined table walk: the raw column values keyed by
+ * row index, joined back into supplies, trays and media sizes on demand.
+ */
+@Slf4j
+public class PrinterTables {
+    @SuppressWarnings("unchecked")
+    private final Map<OID, Variable>[] columns = new Map[COLUMNS.length];
+    private boolean complete;
+
+    public PrinterTables() {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new LinkedHashMap<>();
+        }
+    }
+
+    void put(int column, OID rowIndex, Variable value) {
+        columns[column].put(rowIndex, value);
+    }
+
+    public Map<OID, Variable> getColumn(int column) {
+        return columns[column];
+    }
+
+    public int getMaxRows() {
+        int rows = 0;
+        for (Map<OID, Variable> column : columns) {
+            rows = Math.max(rows, column.size());
+        }
+        return rows;
+    }
+
+    /**
+     * Whether every column was walked to its end (false after a timeout)
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+    public void applyTo(PrinterDevice device) {
+        applySupplies(device);
+        applyTrays(device);
+        applyMediaSizes(device);
+        device.deriveFlags();
+    }
+
+    private void applySupplies(PrinterDevice device) {
+        columns[SUPPLY_DESCRIPTION].forEach((index, descVar) -> {
+            Variable levelVar = columns[SUPPLY_LEVEL].get(index);
+            Variable maxVar = columns[SUPPLY_MAX_LEVEL].get(index);
+            if (descVar.isException() || !SnmpValues.isPresent(levelVar) || !SnmpValues.isPresent(maxVar)) {
+                return;
+            }
+
+            String desc = descVar.toString().trim();
+            if (desc.isEmpty()) return;
+
+            try {
+                int level = SnmpValues.toInt(levelVar);
+                int max = SnmpValues.toInt(maxVar);
+
+                if (level < 0) level = 0;
+                if (max <= 0) max = 100;
+
+                device.getSupplyDescriptions().put(desc, desc);
+                device.getSupplyLevels().put(desc, level);
+                device.getSupplyMaxLevels().put(desc, max);
+            } catch (Exception e) {
+                Metrics.PARSE_ERRORS.increment();
+                log.debug("Error parsing toner values for {}: {}", desc, e.getMessage());
+            }
+        });
+    }
+
+    private void applyTrays(PrinterDevice device) {
+        columns[TRAY_DESCRIPTION].forEach((index, descVar) -> {
+            Variable levelVar = columns[TRAY_LEVEL].get(index);
+            Variable maxVar = columns[TRAY_MAX_LEVEL].get(index);
+            if (descVar.isException() || !SnmpValues.isPresent(levelVar) || !SnmpValues.isPresent(maxVar)) {
+                return;
+            }
+
+            String desc = descVar.toString().trim();
+            if (desc.isEmpty()) return;
+
+            try {
+                int level = SnmpValues.toInt(levelVar);
+                int max = SnmpValues.toInt(maxVar);
+
+                if (level < -1) level = 0;
+                if (max <= 0) max = 100;
+
+                device.getTrayDescriptions().put(desc, desc);
+                device.getTrayLevels().put(desc, level);
+                device.getTrayMaxLevels().put(desc, max);
+            } catch (Exception e) {
+                Metrics.PARSE_ERRORS.increment();
+                log.debug("Error parsing paper tray values for {}: {}", desc, e.getMessage());
+            }
+        });
+    }
+
+    private void applyMediaSizes(PrinterDevice device) {
+        columns[MEDIA_NAME].values().forEach(variable -> {
+            if (variable.isException()) return;
+
+            String mediaSize = variable.toString().trim();
+            if (!mediaSize.isEmpty()) {
+                device.getSupportedMediaSizes().add(mediaSize);
+            }
+        });
+
+        // If we couldn't get supported media sizes through SNMP,
+        // check the tray names as a fallback
+        if (device.getSupportedMediaSizes().isEmpty()) {
+            device.getTrayDescriptions().forEach((name, desc) -> {
+                String trayInfo = (name + " " + desc).toLowerCase();
+                if (trayInfo.contains("a3")) {
+                    device.getSupportedMediaSizes().add("a3");
+                }
+                if (trayInfo.contains("a4")) {
+                    device.getSupportedMediaSizes().add("a4");
+                }
+            });
+        }
+    }
+}
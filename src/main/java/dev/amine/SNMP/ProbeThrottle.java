@@ -0,0 +1,171 @@
+package dev.amine.SNMP;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Paces SNMP requests globally and per subnet, so that a sweep does not flood
+ * slow switches into dropping packets. Each subnet gets its own token bucket
+ * and in-flight limit; in adaptive mode a subnet's rate is halved whenever
+ * too many requests to hosts that are known to answer time out, and slowly
+ * raised again while they don't.
+ */
+@Slf4j
+public class ProbeThrottle {
+    // Number of confirmed-host outcomes evaluated per adaptive step
+    private static final int ADAPTIVE_SAMPLE_SIZE = 40;
+
+    private final TokenBucket globalRate;
+    private final Semaphore globalInFlight;
+    private final List<SubnetLimit> subnetLimits;
+    private final Map<String, Pacer> pacers = new ConcurrentHashMap<>();
+
+    public ProbeThrottle() {
+        this(PrinterDiscoveryConfig.RATE_LIMIT_PPS, PrinterDiscoveryConfig.RATE_LIMIT_MAX_IN_FLIGHT,
+                parseSubnetLimits(PrinterDiscoveryConfig.SUBNET_RATE_LIMITS));
+    }
+
+    public ProbeThrottle(int packetsPerSecond, int maxInFlight, List<SubnetLimit> subnetLimits) {
+        this.globalRate = new TokenBucket(packetsPerSecond, Math.max(1, packetsPerSecond / 10));
+        this.globalInFlight = new Semaphore(maxInFlight);
+        this.subnetLimits = List.copyOf(subnetLimits);
+        Metrics.gauge("printwatch_snmp_in_flight", "SNMP requests sent and not yet answered or timed out",
+                () -> maxInFlight - globalInFlight.availablePermits());
+    }
+
+    /**
+     * Wait for both the subnet and the global limits to allow one more request
+     *
+     * @param ip        Destination of the request
+     * @param knownHost Whether the host already answered; only those requests feed the adaptive rate,
+     *                  silence from an empty address is expected and says nothing about congestion
+     * @return The permit to release once the request has completed
+     */
+    public Permit acquire(String ip, boolean knownHost) throws InterruptedException {
+        Pacer pacer = pacerFor(ip);
+        pacer.inFlight.acquire();
+        try {
+            globalInFlight.acquire();
+        } catch (InterruptedException e) {
+            pacer.inFlight.release();
+            throw e;
+        }
+        try {
+            pacer.rate.acquire();
+            globalRate.acquire();
+        } catch (InterruptedException e) {
+            globalInFlight.release();
+            pacer.inFlight.release();
+            throw e;
+        }
+        return new Permit(pacer, knownHost);
+    }
+
+    public int getAvailableInFlight() {
+        return globalInFlight.availablePermits();
+    }
+
+    private Pacer pacerFor(String ip) {
+        int address = AddressRange.toInt(ip);
+        for (SubnetLimit limit : subnetLimits) {
+            if (limit.range().contains(address)) {
+                return pacers.computeIfAbsent(limit.range().toString(),
+                        key -> new Pacer(key, limit.packetsPerSecond(), limit.maxInFlight()));
+            }
+        }
+        String key = AddressRange.toString(address & 0xFFFFFF00) + "/24";
+        return pacers.computeIfAbsent(key, k -> new Pacer(k, PrinterDiscoveryConfig.SUBNET_RATE_LIMIT_PPS,
+                PrinterDiscoveryConfig.SUBNET_MAX_IN_FLIGHT));
+    }
+
+    /**
+     * Parse per-subnet overrides of the form "10.20.0.0/16=50:8, 10.30.1.0/24=20:4"
+     * (packets per second, then optional max in flight)
+     */
+    public static List<SubnetLimit> parseSubnetLimits(String spec) {
+        List<SubnetLimit> limits = new ArrayList<>();
+        if (spec == null || spec.isBlank()) return limits;
+        for (String entry : spec.split("[,\\s]+")) {
+            if (entry.isBlank()) continue;
+            try {
+                String[] parts = entry.split("=", 2);
+                String[] values = parts[1].split(":", 2);
+                int pps = Integer.parseInt(values[0]);
+                int inFlight = values.length > 1 ? Integer.parseInt(values[1]) : PrinterDiscoveryConfig.SUBNET_MAX_IN_FLIGHT;
+                limits.add(new SubnetLimit(AddressRange.parse(parts[0]), pps, inFlight));
+            } catch (RuntimeException e) {
+                log.warn("Ignoring invalid subnet rate limit '{}': {}", entry, e.getMessage());
+            }
+        }
+        return limits;
+    }
+
+    public record SubnetLimit(AddressRange range, int packetsPerSecond, int maxInFlight) {
+    }
+
+    private static final class Pacer {
+        private final String name;
+        private final double maxRate;
+        private final TokenBucket rate;
+        private final Semaphore inFlight;
+        private int samples;
+        private int timeouts;
+
+        private Pacer(String name, int packetsPerSecond, int maxInFlight) {
+            this.name = name;
+            this.maxRate = packetsPerSecond;
+            this.rate = new TokenBucket(packetsPerSecond, Math.max(1, packetsPerSecond / 10));
+            this.inFlight = new Semaphore(maxInFlight);
+        }
+
+        private synchronized void record(boolean timedOut) {
+            samples++;
+            if (timedOut) timeouts++;
+            if (samples < ADAPTIVE_SAMPLE_SIZE) return;
+
+            double ratio = (double) timeouts / samples;
+            double current = rate.getRate();
+            if (ratio > PrinterDiscoveryConfig.ADAPTIVE_TIMEOUT_RATIO) {
+                double reduced = Math.max(PrinterDiscoveryConfig.ADAPTIVE_MIN_PPS, current / 2);
+                rate.setRate(reduced);
+                log.info("Timeout ratio {}% on {}, pacing down to {} packets/s",
+                        Math.round(ratio * 100), name, Math.round(reduced));
+            } else if (current < maxRate) {
+                rate.setRate(Math.min(maxRate, current * 1.25));
+            }
+            samples = 0;
+            timeouts = 0;
+        }
+    }
+
+    public final class Permit {
+        private final Pacer pacer;
+        private final boolean knownHost;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Pacer pacer, boolean knownHost) {
+            this.pacer = pacer;
+            this.knownHost = knownHost;
+        }
+
+        /**
+         * Give the in-flight slots back; safe to call more than once
+         *
+         * @param timedOut Whether the request ended without a response
+         */
+        public void release(boolean timedOut) {
+            if (!released.compareAndSet(false, true)) return;
+            globalInFlight.release();
+            pacer.inFlight.release();
+            if (knownHost && PrinterDiscoveryConfig.ADAPTIVE_RATE) {
+                pacer.record(timedOut);
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package dev.amine.SNMP;
+
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A row of the Printer-MIB alert table (prtAlertTable, RFC 3805) as carried
+ * by a printerV2Alert notification
+ */
+public record PrtAlert(int severity, int group, int groupIndex, int location, int code, String description) {
+    // prtAlertEntry columns
+    private static final OID ALERT_ENTRY = new OID("1.3.6.1.2.1.43.18.1.1");
+    private static final int SEVERITY_LEVEL = 2;
+    private static final int GROUP = 4;
+    private static final int GROUP_INDEX = 5;
+    private static final int LOCATION = 6;
+    private static final int CODE = 7;
+    private static final int DESCRIPTION = 8;
+
+    // PrtAlertSeverityLevelTC
+    public static final int SEVERITY_CRITICAL = 3;
+    public static final int SEVERITY_WARNING = 4;
+    public static final int SEVERITY_BINARY_CHANGE = 5;
+
+    // PrtAlertGroupTC values whose alerts concern supplies, trays or media
+    private static final int GROUP_INPUT = 8;
+    private static final int GROUP_OUTPUT = 9;
+    private static final int GROUP_MARKER_SUPPLIES = 11;
+    private static final int GROUP_MARKER_COLORANT = 12;
+    private static final int GROUP_MEDIA_PATH = 13;
+
+    // PrtAlertCodeTC, the codes worth a readable message
+    private static final Map<Integer, String> CODES = Map.ofEntries(
+            Map.entry(3, "Cover open"),
+            Map.entry(5, "Interlock open"),
+            Map.entry(8, "Paper jam"),
+            Map.entry(9, "Subunit missing"),
+            Map.entry(10, "Subunit life almost over"),
+            Map.entry(11, "Subunit life over"),
+            Map.entry(12, "Subunit almost empty"),
+            Map.entry(13, "Subunit empty"),
+            Map.entry(22, "Subunit offline"),
+            Map.entry(29, "Recoverable failure"),
+            Map.entry(30, "Unrecoverable failure"),
+            Map.entry(33, "Motor failure"),
+            Map.entry(36, "Over temperature"),
+            Map.entry(501, "Door open"),
+            Map.entry(504, "Powered down"),
+            Map.entry(801, "Paper tray missing"),
+            Map.entry(807, "Low paper"),
+            Map.entry(808, "Paper tray empty"),
+            Map.entry(809, "Paper change requested"),
+            Map.entry(903, "Output tray full"),
+            Map.entry(1101, "Toner empty"),
+            Map.entry(1102, "Ink empty"),
+            Map.entry(1104, "Low toner"),
+            Map.entry(1105, "Low ink"),
+            Map.entry(1107, "Waste toner almost full"),
+            Map.entry(1109, "Waste toner full"),
+            Map.entry(1111, "Drum life almost over"),
+            Map.entry(1112, "Drum life over"),
+            Map.entry(1115, "Toner cartridge missing"));
+
+    /**
+     * Pick the prtAlertEntry columns out of a notification's bindings. The
+     * bindings come from the network unauthenticated, so a column of the
+     * wrong type is skipped (and counted as a parse error) rather than
+     * converted.
+     *
+     * @return The alert, or null if the bindings hold no alert code
+     */
+    public static PrtAlert decode(List<? extends VariableBinding> bindings) {
+        int severity = 0, group = 0, groupIndex = 0, location = 0, code = 0;
+        String description = null;
+        for (VariableBinding vb : bindings) {
+            OID oid = vb.getOid();
+            Variable value = vb.getVariable();
+            if (oid == null || value == null || !oid.startsWith(ALERT_ENTRY) || oid.size() <= ALERT_ENTRY.size()
+                    || value.isException()) continue;
+            int column = oid.get(ALERT_ENTRY.size());
+            if (column == DESCRIPTION) {
+                if (value instanceof OctetString text) {
+                    description = text.toString().trim();
+                } else {
+                    Metrics.PARSE_ERRORS.increment();
+                }
+                continue;
+            }
+            if (column < SEVERITY_LEVEL || column > CODE) continue;
+            if (!(value instanceof Integer32 number)) {
+                Metrics.PARSE_ERRORS.increment();
+                continue;
+            }
+            switch (column) {
+                case SEVERITY_LEVEL -> severity = number.getValue();
+                case GROUP -> group = number.getValue();
+                case GROUP_INDEX -> groupIndex = number.getValue();
+                case LOCATION -> location = number.getValue();
+                case CODE -> code = number.getValue();
+                default -> {
+                }
+            }
+        }
+        return code != 0 ? new PrtAlert(severity, group, groupIndex, location, code, description) : null;
+    }
+
+    /**
+     * Whether the alert is about supplies, trays or media, which only a full inventory poll refreshes
+     */
+    public boolean concernsInventory() {
+        return group == GROUP_INPUT || group == GROUP_OUTPUT || group == GROUP_MARKER_SUPPLIES
+                || group == GROUP_MARKER_COLORANT || group == GROUP_MEDIA_PATH;
+    }
+
+    /**
+     * Alert message in the same form as the polled ones
+     */
+    public String message(String ip) {
+        String what = CODES.getOrDefault(code, "Printer alert " + code);
+        if (description != null && !description.isEmpty()) {
+            what += " (" + description + ")";
+        }
+        String level = switch (severity) {
+            case SEVERITY_CRITICAL -> "Critical";
+            case SEVERITY_WARNING, SEVERITY_BINARY_CHANGE -> "Warning";
+            default -> "Notice";
+        };
+        return "ALERT: " + level + ": " + what + " - " + ip;
+    }
+}
@@ -0,0 +1,112 @@
+package dev.amine.SNMP;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-host round-trip time estimates, kept the way TCP does (RFC 6298):
+ * a smoothed RTT plus its mean deviation, from which the request timeout and
+ * retry count of each host are derived. Hosts that never answered use a
+ * short initial timeout, so empty addresses do not hold a slot for long.
+ */
+public class RttEstimator {
+    private static final double ALPHA = 0.125;
+    private static final double BETA = 0.25;
+    // Total time a request to a known host may take, all attempts included
+    private static final long RETRY_BUDGET_FACTOR = 4;
+    private static final int MAX_RETRIES = 2;
+
+    private final long initialTimeoutMs;
+    private final long minTimeoutMs;
+    private final long maxTimeoutMs;
+    private final Map<String, Estimate> estimates = new ConcurrentHashMap<>();
+
+    public RttEstimator(long initialTimeoutMs, long minTimeoutMs, long maxTimeoutMs) {
+        this.initialTimeoutMs = initialTimeoutMs;
+        this.minTimeoutMs = minTimeoutMs;
+        this.maxTimeoutMs = maxTimeoutMs;
+    }
+
+    public long timeoutFor(String ip) {
+        Estimate estimate = estimates.get(ip);
+        return estimate != null ? estimate.timeout() : initialTimeoutMs;
+    }
+
+    /**
+     * Short timeouts can afford more attempts within the same overall budget;
+     * hosts that never answered get a single retry
+     */
+    public int retriesFor(String ip) {
+        Estimate estimate = estimates.get(ip);
+        if (estimate == null) return 1;
+        long budget = Math.max(initialTimeoutMs, estimate.rto()) * RETRY_BUDGET_FACTOR;
+        long attempts = budget / Math.max(1, estimate.timeout());
+        return (int) Math.max(0, Math.min(MAX_RETRIES, attempts - 1));
+    }
+
+    /**
+     * Record a response
+     *
+     * @param elapsedMs Time between sending and receiving the response
+     * @param timeoutMs Per-attempt timeout the request was sent with. A response slower than
+     *                  that may be the answer to a retry, so it is not used as a sample (Karn's rule).
+     */
+    public void sample(String ip, long elapsedMs, long timeoutMs) {
+        Estimate estimate = estimates.computeIfAbsent(ip, key -> new Estimate());
+        if (elapsedMs < timeoutMs) {
+            estimate.update(elapsedMs);
+        } else {
+            estimate.clearBackoff();
+        }
+    }
+
+    /**
+     * Record a request to a host known to answer that got no response: back off like TCP
+     */
+    public void timedOut(String ip) {
+        Estimate estimate = estimates.get(ip);
+        if (estimate != null) estimate.backOff();
+    }
+
+    /**
+     * Drop a host's estimate, once it is no longer a known printer
+     */
+    public void forget(String ip) {
+        estimates.remove(ip);
+    }
+
+    private final class Estimate {
+        private double srtt = -1;
+        private double rttvar;
+        private int backoff;
+
+        private synchronized void update(long rtt) {
+            if (srtt < 0) {
+                srtt = rtt;
+                rttvar = rtt / 2.0;
+            } else {
+                rttvar = (1 - BETA) * rttvar + BETA * Math.abs(srtt - rtt);
+                srtt = (1 - ALPHA) * srtt + ALPHA * rtt;
+            }
+            backoff = 0;
+        }
+
+        private synchronized void clearBackoff() {
+            backoff = 0;
+        }
+
+        private synchronized void backOff() {
+            if (backoff < 5) backoff++;
+        }
+
+        private synchronized long rto() {
+            if (srtt < 0) return initialTimeoutMs;
+            long rto = Math.round(srtt + Math.max(10, 4 * rttvar));
+            return Math.max(minTimeoutMs, Math.min(maxTimeoutMs, rto));
+        }
+
+        private synchronized long timeout() {
+            return Math.min(maxTimeoutMs, rto() << backoff);
+        }
+    }
+}
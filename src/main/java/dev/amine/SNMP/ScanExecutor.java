@@ -0,0 +1,94 @@
+package dev.amine.SNMP;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the blocking part of device scans. In virtual mode every task gets its
+ * own virtual thread and a semaphore caps how many run at once, so the limit
+ * can be raised to thousands without the memory cost of platform threads.
+ * Platform mode keeps the previous fixed thread pool.
+ */
+@Slf4j
+public class ScanExecutor implements Executor {
+    public enum Mode {VIRTUAL, PLATFORM}
+
+    private final Mode mode;
+    private final int concurrency;
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ScanExecutor(Mode mode, int concurrency) {
+        this.mode = mode;
+        this.concurrency = Math.max(1, concurrency);
+        this.permits = new Semaphore(this.concurrency);
+        this.delegate = mode == Mode.VIRTUAL
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("scan-", 0).factory())
+                : Executors.newFixedThreadPool(this.concurrency);
+        log.info("Scan executor: {} threads, concurrency limit {}", mode.name().toLowerCase(), this.concurrency);
+        Metrics.gauge("printwatch_scan_tasks_active", "Scan tasks running", active::get);
+        Metrics.gauge("printwatch_scan_tasks_waiting", "Scan tasks waiting for a concurrency permit", waiting::get);
+        Metrics.counter("printwatch_scan_tasks_rejected_total", "Scan tasks the executor refused", rejected::get);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        try {
+            delegate.execute(() -> run(task));
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    private void run(Runnable task) {
+        waiting.incrementAndGet();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            waiting.decrementAndGet();
+            Thread.currentThread().interrupt();
+            return;
+        }
+        waiting.decrementAndGet();
+        active.incrementAndGet();
+        try {
+            task.run();
+        } finally {
+            active.decrementAndGet();
+            completed.incrementAndGet();
+            permits.release();
+        }
+    }
+
+    public void shutdown(long timeout, TimeUnit unit) {
+        delegate.shutdown();
+        try {
+            if (!delegate.awaitTermination(timeout, unit)) {
+                delegate.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            delegate.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(mode, concurrency, active.get(), waiting.get(), completed.get(), rejected.get());
+    }
+
+    public record Stats(Mode mode, int concurrency, int active, int waiting, long completed, long rejected) {
+    }
+}
@@ -0,0 +1,302 @@
+package dev.amine.SNMP;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal made of memory-mapped segment files. Each record is
+ * framed as [length][CRC32C][payload]; a zero length marks the end of the
+ * written data, since fresh segments are zero-filled. Offsets are logical
+ * and contiguous across segments: a segment file is named after the offset
+ * of its first byte.
+ * <p>
+ * The committed offset (everything before it has reached the database) is
+ * kept in a separate file, forced to disk and then replaced atomically.
+ * Segments entirely below it are deleted.
+ */
+@Slf4j
+public class ScanJournal implements AutoCloseable {
+    private static final int HEADER_BYTES = 8;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String COMMITTED_FILE = "committed.offset";
+    private static final LongAdder DROPPED_BYTES = Metrics.counter("printwatch_spool_dropped_bytes_total",
+            "Spooled scan bytes dropped undrained because the journal exceeded its disk budget");
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long maxBytes;
+    private final boolean fsync;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final List<Path> pendingDeletes = new ArrayList<>();
+    private Segment active;
+    private volatile long committedOffset;
+
+    public record Entry(long offset, long nextOffset, ByteBuffer payload) {
+    }
+
+    /**
+     * @param segmentBytes Size of a new segment file
+     * @param maxBytes     Disk budget; past it the oldest undrained segment is dropped
+     * @param fsync        Force every append to disk rather than leaving it to the OS
+     */
+    public ScanJournal(Path directory, int segmentBytes, long maxBytes, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxBytes = maxBytes;
+        this.fsync = fsync;
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    private void recover() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(f -> f.getFileName().toString().endsWith(SEGMENT_SUFFIX)).toList()) {
+                String name = file.getFileName().toString();
+                long base = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                segments.put(base, Segment.open(file, base, 0));
+            }
+        }
+        committedOffset = readCommittedOffset();
+
+        if (segments.isEmpty()) {
+            active = createSegment(committedOffset, segmentBytes);
+        } else {
+            active = segments.lastEntry().getValue();
+            active.truncateTail();
+        }
+        log.info("Spool journal at {}: {} segment(s), {} byte(s) to replay",
+                directory, segments.size(), Math.max(0, getEndOffset() - committedOffset));
+    }
+
+    /**
+     * @return The offset just past the appended record
+     */
+    public synchronized long append(byte[] payload) throws IOException {
+        int needed = HEADER_BYTES + payload.length;
+        if (active.capacity() - active.end < needed) {
+            active.force();
+            active = createSegment(active.base + active.end, Math.max(segmentBytes, needed));
+            enforceBudget();
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        MappedByteBuffer buffer = active.buffer;
+        int position = active.end;
+        // Payload and checksum first, length last: a torn write leaves a zero length behind
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.put(position + HEADER_BYTES, payload);
+        buffer.putInt(position, payload.length);
+        active.end = position + needed;
+        if (fsync) active.force();
+        return active.base + active.end;
+    }
+
+    /**
+     * Read the record at the given offset, skipping to the next segment at
+     * the end of one (or past a corrupt record)
+     *
+     * @return The record, or null if there is nothing at or after the offset
+     */
+    public synchronized Entry read(long offset) {
+        Map.Entry<Long, Segment> floor = segments.floorEntry(offset);
+        Segment segment = floor != null ? floor.getValue() : segments.firstEntry().getValue();
+        long position = floor != null ? offset - segment.base : 0;
+
+        while (segment != null) {
+            ByteBuffer payload = position < segment.end ? segment.recordAt((int) position) : null;
+            if (payload != null) {
+                long start = segment.base + position;
+                return new Entry(start, start + HEADER_BYTES + payload.remaining(), payload);
+            }
+            if (position < segment.end) {
+                log.error("Corrupt spool record at offset {}, skipping the rest of segment {}",
+                        segment.base + position, segment.base);
+            }
+            Map.Entry<Long, Segment> next = segments.higherEntry(segment.base);
+            segment = next != null ? next.getValue() : null;
+            position = 0;
+        }
+        return null;
+    }
+
+    public long getCommittedOffset() {
+        return committedOffset;
+    }
+
+    public synchronized long getEndOffset() {
+        return active.base + active.end;
+    }
+
+    /**
+     * Record that everything before the offset is in the database, then
+     * delete the segments that are no longer needed
+     */
+    public synchronized void commit(long offset) throws IOException {
+        Path temp = directory.resolve(COMMITTED_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = ByteBuffer.allocate(Long.BYTES).putLong(offset).flip();
+            while (bytes.hasRemaining()) channel.write(bytes);
+            // The rename must not reach the disk before the content does
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(COMMITTED_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory();
+        committedOffset = offset;
+
+        while (segments.size() > 1) {
+            Map.Entry<Long, Segment> first = segments.firstEntry();
+            Map.Entry<Long, Segment> second = segments.higherEntry(first.getKey());
+            if (second.getKey() > offset) break;
+            segments.pollFirstEntry();
+            pendingDeletes.add(first.getValue().file);
+        }
+        deletePending();
+    }
+
+    private void enforceBudget() throws IOException {
+        long total = 0;
+        for (Segment segment : segments.values()) total += segment.capacity();
+        while (total > maxBytes && segments.size() > 1) {
+            Segment dropped = segments.pollFirstEntry().getValue();
+            total -= dropped.capacity();
+            pendingDeletes.add(dropped.file);
+            long next = segments.firstKey();
+            if (committedOffset < next) {
+                long lost = next - Math.max(committedOffset, dropped.base);
+                DROPPED_BYTES.add(lost);
+                log.error("Spool exceeds {} bytes, dropping {} undrained byte(s) of scan results", maxBytes, lost);
+                commit(next);
+            }
+        }
+        deletePending();
+    }
+
+    /**
+     * Make the rename of the committed offset file durable. Not every
+     * platform can open a directory; there the rename is left to the OS.
+     */
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Could not force spool directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * A file that is still mapped cannot be deleted on every platform; such
+     * files are retried on the next commit
+     */
+    private void deletePending() {
+        pendingDeletes.removeIf(file -> {
+            try {
+                Files.deleteIfExists(file);
+                return true;
+            } catch (IOException e) {
+                log.debug("Could not delete spool segment {} yet: {}", file, e.getMessage());
+                return false;
+            }
+        });
+    }
+
+    private long readCommittedOffset() throws IOException {
+        Path file = directory.resolve(COMMITTED_FILE);
+        if (Files.exists(file)) {
+            byte[] bytes = Files.readAllBytes(file);
+            if (bytes.length == Long.BYTES) return ByteBuffer.wrap(bytes).getLong();
+            log.error("Ignoring malformed committed offset file {}", file);
+        }
+        return segments.isEmpty() ? 0 : segments.firstKey();
+    }
+
+    private Segment createSegment(long base, int capacity) throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", base, SEGMENT_SUFFIX));
+        Segment segment = Segment.open(file, base, capacity);
+        segments.put(base, segment);
+        return segment;
+    }
+
+    @Override
+    public synchronized void close() {
+        active.force();
+    }
+
+    private static final class Segment {
+        private final Path file;
+        private final long base;
+        private final MappedByteBuffer buffer;
+        private int end;
+
+        private Segment(Path file, long base, MappedByteBuffer buffer) {
+            this.file = file;
+            this.base = base;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Map an existing file (capacity 0) or create one of the given size, and find its end
+         */
+        private static Segment open(Path file, long base, int capacity) throws IOException {
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long size = capacity > 0 ? capacity : channel.size();
+                Segment segment = new Segment(file, base, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+                int position = 0;
+                ByteBuffer payload;
+                while ((payload = segment.recordAt(position)) != null) {
+                    position += HEADER_BYTES + payload.remaining();
+                }
+                segment.end = position;
+                return segment;
+            }
+        }
+
+        private int capacity() {
+            return buffer.capacity();
+        }
+
+        /**
+         * @return A view of the payload, or null at the end of the data or on a checksum mismatch
+         */
+        private ByteBuffer recordAt(int position) {
+            if (position + HEADER_BYTES > buffer.capacity()) return null;
+            int length = buffer.getInt(position);
+            if (length <= 0 || length > buffer.capacity() - position - HEADER_BYTES) return null;
+            ByteBuffer payload = buffer.slice(position + HEADER_BYTES, length);
+            CRC32C crc = new CRC32C();
+            crc.update(payload.duplicate());
+            return (int) crc.getValue() == buffer.getInt(position + 4) ? payload : null;
+        }
+
+        /**
+         * Zero whatever a crash left after the last valid record, so that
+         * new appends cannot run into stale bytes
+         */
+        private void truncateTail() {
+            for (int i = end; i < buffer.capacity(); i++) {
+                if (buffer.get(i) != 0) {
+                    log.warn("Discarding a partially written spool record at offset {}", base + end);
+                    for (int j = end; j < buffer.capacity(); j++) buffer.put(j, (byte) 0);
+                    force();
+                    return;
+                }
+            }
+        }
+
+        private void force() {
+            buffer.force();
+        }
+    }
+}
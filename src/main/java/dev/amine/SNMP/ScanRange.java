@@ -0,0 +1,155 @@
+package dev.amine.SNMP;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * The set of addresses a sweep covers: one or more included blocks minus any
+ * excluded blocks. Addresses are generated lazily, so a /16 is never
+ * materialised as a list.
+ */
+public final class ScanRange implements Iterable<String> {
+    private final List<AddressRange> includes;
+    private final List<AddressRange> excludes;
+
+    public ScanRange(List<AddressRange> includes, List<AddressRange> excludes) {
+        this.includes = List.copyOf(includes);
+        this.excludes = List.copyOf(excludes);
+    }
+
+    /**
+     * Parse a comma or whitespace separated list of ranges
+     * Entries prefixed with '!' are excluded, e.g. "10.0.0.0/16, !10.0.5.0/24, 192.168.1"
+     *
+     * @param spec The scan specification
+     * @return The parsed scan range
+     * @throws IllegalArgumentException if any entry is not a valid range
+     */
+    public static ScanRange parse(String spec) {
+        List<AddressRange> includes = new ArrayList<>();
+        List<AddressRange> excludes = new ArrayList<>();
+        for (String entry : spec.split("[,\\s]+")) {
+            if (entry.isBlank()) continue;
+            if (entry.startsWith("!")) {
+                excludes.add(AddressRange.parse(entry.substring(1)));
+            } else {
+                includes.add(AddressRange.parse(entry));
+            }
+        }
+        if (includes.isEmpty()) {
+            throw new IllegalArgumentException("No address range to scan in '" + spec + "'");
+        }
+        return new ScanRange(includes, excludes);
+    }
+
+    public static ScanRange of(AddressRange... includes) {
+        return new ScanRange(List.of(includes), Collections.emptyList());
+    }
+
+    public List<AddressRange> getIncludes() {
+        return includes;
+    }
+
+    public List<AddressRange> getExcludes() {
+        return excludes;
+    }
+
+    /**
+     * Upper bound of the number of addresses, before exclusions and overlaps
+     */
+    public long estimatedSize() {
+        return includes.stream().mapToLong(AddressRange::size).sum();
+    }
+
+    /**
+     * The included block an address belongs to, used to group per-subnet state
+     */
+    public AddressRange blockOf(int address) {
+        for (AddressRange range : includes) {
+            if (range.contains(address)) return range;
+        }
+        return null;
+    }
+
+    public boolean contains(int address) {
+        return blockOf(address) != null && !isExcluded(address);
+    }
+
+    private boolean isExcluded(int address) {
+        for (AddressRange range : excludes) {
+            if (range.contains(address)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Iterate raw addresses, skipping exclusions and addresses already
+     * produced by an earlier overlapping block
+     */
+    public PrimitiveIterator.OfInt addresses() {
+        return new PrimitiveIterator.OfInt() {
+            private int rangeIndex = 0;
+            private PrimitiveIterator.OfInt current = includes.get(0).addresses();
+            private boolean hasPending;
+            private int pending;
+
+            @Override
+            public boolean hasNext() {
+                while (!hasPending) {
+                    while (!current.hasNext()) {
+                        if (++rangeIndex >= includes.size()) return false;
+                        current = includes.get(rangeIndex).addresses();
+                    }
+                    int candidate = current.nextInt();
+                    if (!isExcluded(candidate) && !coveredEarlier(candidate)) {
+                        pending = candidate;
+                        hasPending = true;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) throw new NoSuchElementException();
+                hasPending = false;
+                return pending;
+            }
+
+            private boolean coveredEarlier(int address) {
+                for (int i = 0; i < rangeIndex; i++) {
+                    if (includes.get(i).contains(address)) return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        PrimitiveIterator.OfInt addresses = addresses();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return addresses.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return AddressRange.toString(addresses.nextInt());
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        includes.forEach(range -> sb.append(sb.isEmpty() ? "" : ", ").append(range));
+        excludes.forEach(range -> sb.append(", !").append(range));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,195 @@
+package dev.amine.SNMP;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Binary form of a scan cycle as stored in the spool journal. Numbers are
+ * zigzag varints and strings are length-prefixed UTF-8, so a typical
+ * printer takes a few hundred bytes. The leading version byte allows the
+ * format to evolve while older journals are still being drained.
+ */
+public final class ScanRecordCodec {
+    private static final byte VERSION = 1;
+    private static final PrinterStatus[] STATUSES = PrinterStatus.values();
+
+    private ScanRecordCodec() {
+    }
+
+    public record Scan(long scannedAt, List<PrinterDevice> printers) {
+    }
+
+    public static byte[] encode(long scannedAt, List<PrinterDevice> printers) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256 * printers.size() + 16);
+        out.write(VERSION);
+        writeLong(out, scannedAt);
+        writeLong(out, printers.size());
+        for (PrinterDevice printer : printers) {
+            writeString(out, printer.getIpAddress());
+            writeString(out, printer.getMacAddress());
+            writeString(out, printer.getModelName());
+            writeString(out, printer.getSerialNumber());
+            writeString(out, printer.getVendor());
+            writeLong(out, printer.getStatus() != null ? printer.getStatus().ordinal() : -1);
+            writeNullableLong(out, printer.getTotalPageCount());
+            writeNullableLong(out, printer.getColorPageCount());
+            writeNullableLong(out, printer.getMonoPageCount());
+            writeIntMap(out, printer.getSupplyLevels());
+            writeIntMap(out, printer.getSupplyMaxLevels());
+            writeStringMap(out, printer.getSupplyDescriptions());
+            writeIntMap(out, printer.getTrayLevels());
+            writeIntMap(out, printer.getTrayMaxLevels());
+            writeStringMap(out, printer.getTrayDescriptions());
+            writeLong(out, printer.getSupportedMediaSizes().size());
+            printer.getSupportedMediaSizes().forEach(size -> writeString(out, size));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the record is truncated or of an unknown version
+     */
+    public static Scan decode(ByteBuffer in) {
+        try {
+            byte version = in.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unknown scan record version " + version);
+            }
+            long scannedAt = readLong(in);
+            int count = readCount(in);
+            List<PrinterDevice> printers = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String ip = readString(in);
+                String mac = readString(in);
+                String model = readString(in);
+                String serial = readString(in);
+                String vendor = readString(in);
+                int status = (int) readLong(in);
+                PrinterDevice printer = PrinterDevice.builder()
+                        .ipAddress(ip)
+                        .macAddress(mac)
+                        .modelName(model)
+                        .serialNumber(serial)
+                        .vendor(vendor)
+                        .status(status >= 0 && status < STATUSES.length ? STATUSES[status] : null)
+                        .totalPageCount(readNullableLong(in))
+                        .colorPageCount(readNullableLong(in))
+                        .monoPageCount(readNullableLong(in))
+                        .supplyLevels(readIntMap(in))
+                        .supplyMaxLevels(readIntMap(in))
+                        .supplyDescriptions(readStringMap(in))
+                        .trayLevels(readIntMap(in))
+                        .trayMaxLevels(readIntMap(in))
+                        .trayDescriptions(readStringMap(in))
+                        .build();
+                int sizes = readCount(in);
+                for (int j = 0; j < sizes; j++) {
+                    printer.getSupportedMediaSizes().add(readString(in));
+                }
+                printer.deriveFlags();
+                printers.add(printer);
+            }
+            return new Scan(scannedAt, printers);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated scan record", e);
+        }
+    }
+
+    private static void writeIntMap(ByteArrayOutputStream out, Map<String, Integer> map) {
+        writeLong(out, map.size());
+        map.forEach((key, value) -> {
+            writeString(out, key);
+            writeNullableLong(out, value != null ? value.longValue() : null);
+        });
+    }
+
+    private static Map<String, Integer> readIntMap(ByteBuffer in) {
+        int size = readCount(in);
+        Map<String, Integer> map = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            Long value = readNullableLong(in);
+            // A missing level reads the same as an absent one
+            if (key != null && value != null) map.put(key, value.intValue());
+        }
+        return map;
+    }
+
+    private static void writeStringMap(ByteArrayOutputStream out, Map<String, String> map) {
+        writeLong(out, map.size());
+        map.forEach((key, value) -> {
+            writeString(out, key);
+            writeString(out, value);
+        });
+    }
+
+    private static Map<String, String> readStringMap(ByteBuffer in) {
+        int size = readCount(in);
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            String value = readString(in);
+            if (key != null && value != null) map.put(key, value);
+        }
+        return map;
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            writeLong(out, -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer in) {
+        long length = readLong(in);
+        if (length < 0) return null;
+        if (length > in.remaining()) throw new BufferUnderflowException();
+        byte[] bytes = new byte[(int) length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeNullableLong(ByteArrayOutputStream out, Long value) {
+        out.write(value != null ? 1 : 0);
+        if (value != null) writeLong(out, value);
+    }
+
+    private static Long readNullableLong(ByteBuffer in) {
+        return in.get() != 0 ? readLong(in) : null;
+    }
+
+    private static int readCount(ByteBuffer in) {
+        long count = readLong(in);
+        // Every element takes at least one byte, anything larger is corruption
+        if (count < 0 || count > in.remaining()) throw new BufferUnderflowException();
+        return (int) count;
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.write((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.write((int) zigzag);
+    }
+
+    private static long readLong(ByteBuffer in) {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
@@ -0,0 +1,242 @@
+package dev.amine.SNMP;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decouples scans from the database: scan results are appended to a local
+ * journal and a background thread replays them to the database in order,
+ * advancing the committed offset after each stored scan. A slow or
+ * unreachable database delays the replay, never the scans, and undrained
+ * results survive a restart.
+ * <p>
+ * Scans are therefore not slowed down by the database: the limit on how far
+ * the replay may lag is the journal's disk budget (printwatch.spool.maxMiB).
+ * Past it the oldest undrained results are dropped, counted in
+ * printwatch_spool_dropped_bytes_total, and the lag itself is exported as
+ * printwatch_spool_backlog_bytes.
+ * <p>
+ * Only failures that say nothing about the record itself (connection loss,
+ * operator intervention, lock conflicts) are retried. A record the database
+ * rejects as bad data, or one the writer fails on, is set aside in the
+ * quarantine directory so that it cannot hold up the records behind it.
+ */
+@Slf4j
+public class ScanSpool implements AutoCloseable {
+    private static final Path DIRECTORY = Path.of(AgentConfig.getString("printwatch.spool.dir",
+            Path.of(System.getProperty("user.home"), ".printwatch", "spool").toString()));
+    private static final int SEGMENT_MIB = AgentConfig.getInt("printwatch.spool.segmentMiB", 16);
+    private static final long MAX_MIB = AgentConfig.getLong("printwatch.spool.maxMiB", 1024);
+    private static final boolean FSYNC = AgentConfig.getBoolean("printwatch.spool.fsync", true);
+    private static final long RETRY_MIN_MS = 1000;
+    private static final long RETRY_MAX_MS = 60000;
+    private static final Path QUARANTINE = DIRECTORY.resolve("quarantine");
+    private static final LongAdder QUARANTINED = Metrics.counter("printwatch_spool_quarantined_total",
+            "Spooled scans set aside because the database rejected them");
+
+    private final DatabaseManager dbManager;
+    private final ScanJournal journal;
+    private final Thread replayer;
+    private final Object signal = new Object();
+    private boolean pending; // guarded by signal
+    private volatile boolean running = true;
+
+    public ScanSpool(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+        ScanJournal opened = null;
+        try {
+            opened = new ScanJournal(DIRECTORY, SEGMENT_MIB << 20, MAX_MIB << 20, FSYNC);
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not open spool journal at {}, writing scans directly: {}", DIRECTORY, e.getMessage(), e);
+        }
+        this.journal = opened;
+        this.replayer = Thread.ofPlatform().name("spool-replayer").daemon().unstarted(this::replayLoop);
+        if (journal != null) replayer.start();
+        Metrics.gauge("printwatch_spool_backlog_bytes", "Spooled scan bytes not yet in the database", this::getBacklogBytes);
+    }
+
+    /**
+     * Hand over the results of a scan. Returns once they are in the journal;
+     * without a journal they are written to the database right away.
+     */
+    public void submit(List<PrinterDevice> printers) {
+        if (printers == null || printers.isEmpty()) return;
+        if (journal != null) {
+            try {
+                journal.append(ScanRecordCodec.encode(System.currentTimeMillis(), printers));
+                synchronized (signal) {
+                    pending = true;
+                    signal.notifyAll();
+                }
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.error("Could not spool scan of {} printer(s), writing directly: {}", printers.size(), e.getMessage(), e);
+            }
+        }
+        dbManager.persistScan(printers);
+    }
+
+    /**
+     * Bytes appended but not yet in the database
+     */
+    public long getBacklogBytes() {
+        return journal != null ? Math.max(0, journal.getEndOffset() - journal.getCommittedOffset()) : 0;
+    }
+
+    private void replayLoop() {
+        long retryMs = RETRY_MIN_MS;
+        while (running) {
+            ScanJournal.Entry entry = journal.read(journal.getCommittedOffset());
+            if (entry == null) {
+                await(RETRY_MAX_MS);
+                continue;
+            }
+
+            ScanRecordCodec.Scan scan;
+            try {
+                scan = ScanRecordCodec.decode(entry.payload());
+            } catch (IllegalArgumentException e) {
+                Metrics.PARSE_ERRORS.increment();
+                log.error("Skipping unreadable spool record at offset {}: {}", entry.offset(), e.getMessage());
+                commit(entry.nextOffset());
+                continue;
+            }
+
+            try {
+                dbManager.writeScan(scan.printers(), new Timestamp(scan.scannedAt()));
+                commit(entry.nextOffset());
+                if (retryMs > RETRY_MIN_MS) {
+                    log.info("Database reachable again, replaying spooled scans");
+                }
+                retryMs = RETRY_MIN_MS;
+            } catch (SQLException | RuntimeException e) {
+                if (!running || isTransient(e)) {
+                    log.warn("Could not replay spooled scan of {} printer(s), retrying in {} ms: {}",
+                            scan.printers().size(), retryMs, e.getMessage());
+                    backOff(retryMs);
+                    retryMs = Math.min(RETRY_MAX_MS, retryMs * 2);
+                } else {
+                    quarantine(entry, e);
+                    commit(entry.nextOffset());
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether a failure to store a scan is worth retrying as is: connection
+     * exceptions (SQLState class 08), operator intervention (57), transaction
+     * rollbacks such as deadlocks (40) and insufficient resources (53).
+     * Data exceptions (22), constraint violations (23) and errors of the
+     * writer itself would fail the same way again.
+     */
+    static boolean isTransient(Exception e) {
+        if (!(e instanceof SQLException sqlException)) return false;
+        if (e instanceof SQLTransientException || e instanceof SQLRecoverableException) return true;
+        String state = sqlStateOf(sqlException);
+        if (state == null || state.length() < 2) return true;
+        return switch (state.substring(0, 2)) {
+            case "22", "23" -> false;
+            default -> true;
+        };
+    }
+
+    // Batches report the statement's failure through the next exception
+    private static String sqlStateOf(SQLException e) {
+        for (SQLException current = e; current != null; current = current.getNextException()) {
+            if (current.getSQLState() != null) return current.getSQLState();
+        }
+        return null;
+    }
+
+    private void quarantine(ScanJournal.Entry entry, Exception cause) {
+        QUARANTINED.increment();
+        Path file = QUARANTINE.resolve(String.format("%020d.scan", entry.offset()));
+        try {
+            Files.createDirectories(QUARANTINE);
+            ByteBuffer payload = entry.payload().duplicate();
+            byte[] bytes = new byte[payload.remaining()];
+            payload.get(bytes);
+            Files.write(file, bytes);
+            log.error("Spooled scan at offset {} was rejected by the database, moved to {}: {}",
+                    entry.offset(), file, cause.getMessage(), cause);
+        } catch (IOException | RuntimeException e) {
+            log.error("Skipping spooled scan at offset {} rejected by the database ({}), could not quarantine it: {}",
+                    entry.offset(), cause.getMessage(), e.getMessage());
+        }
+    }
+
+    private void commit(long offset) {
+        try {
+            journal.commit(offset);
+        } catch (IOException e) {
+            // Worst case the record is replayed once more after a restart
+            log.error("Could not save spool committed offset {}: {}", offset, e.getMessage());
+        }
+    }
+
+    /**
+     * Wait for a scan to be submitted, at most the given time
+     */
+    private void await(long millis) {
+        synchronized (signal) {
+            try {
+                if (!pending && running) signal.wait(millis);
+                pending = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+    }
+
+    /**
+     * Wait out a retry delay. New scans do not cut it short, or the retries
+     * against a failing database would follow the scan rate; only close does.
+     */
+    private void backOff(long millis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        synchronized (signal) {
+            try {
+                long left;
+                while (running && (left = deadline - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(signal, left);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+    }
+
+    /**
+     * Stop the replayer, giving it a moment to finish the scan in flight.
+     * Whatever is left stays in the journal for the next start.
+     */
+    @Override
+    public void close() {
+        if (journal == null) return;
+        running = false;
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+        try {
+            replayer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+        log.info("Spool closed with {} byte(s) left to replay", getBacklogBytes());
+    }
+}
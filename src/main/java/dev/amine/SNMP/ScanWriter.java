@@ -0,0 +1,112 @@
+package dev.amine.SNMP;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Hands printers to storage while the scan that found them is still
+ * running. Scanners put each printer on a bounded queue and a few writer
+ * threads drain it in batches. When the queue is full the scanner blocks,
+ * which holds its executor slot and so slows the sweep down to the pace
+ * the sink can take. With the {@link ScanSpool} as sink that is the pace of
+ * journal appends, not of the database; the journal's disk budget bounds
+ * how far the database may fall behind.
+ */
+@Slf4j
+public class ScanWriter implements AutoCloseable {
+    private static final int WORKERS = AgentConfig.getInt("printwatch.writer.workers", 2);
+    private static final int QUEUE_CAPACITY = AgentConfig.getInt("printwatch.writer.queueCapacity", 1024);
+    private static final int BATCH_SIZE = AgentConfig.getInt("printwatch.writer.batchSize", 64);
+
+    private final Consumer<List<PrinterDevice>> sink;
+    private final BlockingQueue<PrinterDevice> queue = new ArrayBlockingQueue<>(Math.max(1, QUEUE_CAPACITY));
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+    private volatile boolean running = true;
+
+    /**
+     * @param sink Stores a batch of printers; called from the writer threads
+     */
+    public ScanWriter(Consumer<List<PrinterDevice>> sink) {
+        this.sink = sink;
+        for (int i = 0; i < Math.max(1, WORKERS); i++) {
+            workers.add(Thread.ofPlatform().name("scan-writer-" + i).daemon().start(this::drainLoop));
+        }
+        log.info("Scan writer: {} worker(s), queue of {}, batches of {}", workers.size(), QUEUE_CAPACITY, BATCH_SIZE);
+        Metrics.gauge("printwatch_writer_queue_depth", "Printers waiting for a storage writer", queue::size);
+    }
+
+    /**
+     * Queue a printer for storage, blocking while the queue is full
+     */
+    public void accept(PrinterDevice printer) {
+        if (queue.offer(printer)) return;
+        long start = System.nanoTime();
+        try {
+            queue.put(printer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while queueing printer {} for storage", printer.getIpAddress());
+        } finally {
+            blockedNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private void drainLoop() {
+        List<PrinterDevice> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                PrinterDevice first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                sink.accept(List.copyOf(batch));
+                written.addAndGet(batch.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                failed.addAndGet(batch.size());
+                log.error("Error storing {} printer(s): {}", batch.size(), e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(queue.size(), written.get(), failed.get(), TimeUnit.NANOSECONDS.toMillis(blockedNanos.get()));
+    }
+
+    /**
+     * @param queued    Printers waiting for a writer
+     * @param blockedMs Total time scanners spent waiting for room in the queue
+     */
+    public record Stats(int queued, long written, long failed, long blockedMs) {
+    }
+
+    /**
+     * Store what is still queued, then stop the writers
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package dev.amine.SNMP;
+
+import org.snmp4j.PDU;
+import org.snmp4j.smi.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * The MIB of one virtual printer: system group, HOST-RESOURCES device and
+ * printer entries, the Printer-MIB general, marker, supply, input and media
+ * tables, and the page counters of its vendor. Answers GET, GETNEXT and
+ * GETBULK the way a real agent does.
+ */
+public final class SimulatedPrinter {
+    private static final String SYS_DESCR = "1.3.6.1.2.1.1.1.0";
+    private static final String SYS_UP_TIME = "1.3.6.1.2.1.1.3.0";
+    private static final String HR_DEVICE_TYPE = "1.3.6.1.2.1.25.3.2.1.2.1";
+    private static final String HR_DEVICE_DESCR = "1.3.6.1.2.1.25.3.2.1.3.1";
+    private static final String HR_PRINTER_STATUS = "1.3.6.1.2.1.25.3.5.1.1.1";
+    private static final String HR_PRINTER_ERROR_STATE = "1.3.6.1.2.1.25.3.5.1.2.1";
+    private static final OID HR_DEVICE_PRINTER = new OID("1.3.6.1.2.1.25.3.1.5");
+    private static final String SUPPLY_CLASS = "1.3.6.1.2.1.43.11.1.1.4";
+    private static final String SUPPLY_TYPE = "1.3.6.1.2.1.43.11.1.1.5";
+    private static final String INPUT_MEDIA_NAME = "1.3.6.1.2.1.43.8.2.1.12";
+    private static final String COLOR_PAGE_COUNT = "1.3.6.1.2.1.43.10.2.1.5.1.1";
+
+    // Largest response a GETBULK may produce, like an agent bound by its UDP buffer
+    private static final int MAX_BULK_BINDINGS = 128;
+
+    private static final String[] COLORANTS = {"Black", "Cyan", "Magenta", "Yellow"};
+    private static final String[] EXTRA_SUPPLIES = {"Imaging Drum", "Waste Toner Container", "Fuser Kit", "Transfer Belt"};
+    private static final String[] MEDIA = {"iso-a4", "na-letter", "iso-a3", "na-legal", "iso-a5", "jis-b4", "jis-b5", "na-ledger"};
+
+    /**
+     * Models served by the simulator, one per vendor known to PrinterDiscoveryConfig
+     */
+    public enum Model {
+        HP("HP", 11, "HP Color LaserJet MFP M480f", "HP LaserJet Pro M404dn"),
+        XEROX("Xerox", 253, "Xerox VersaLink C405", "Xerox VersaLink B405"),
+        KONICA_MINOLTA("Konica Minolta", 18334, "KONICA MINOLTA bizhub C300i", "KONICA MINOLTA bizhub 4422"),
+        CANON("Canon", 1602, "Canon iR-ADV C5535", "Canon iR-ADV 4545"),
+        BROTHER("Brother", 2435, "Brother MFC-L8900CDW series", "Brother HL-L6400DW series"),
+        EPSON("Epson", 1248, "EPSON WF-C5790 Series", "EPSON WF-M5799 Series");
+
+        private final String vendor;
+        private final int enterprise;
+        private final String colorName;
+        private final String monoName;
+
+        Model(String vendor, int enterprise, String colorName, String monoName) {
+            this.vendor = vendor;
+            this.enterprise = enterprise;
+            this.colorName = colorName;
+            this.monoName = monoName;
+        }
+
+        public String getVendor() {
+            return vendor;
+        }
+    }
+
+    private final Model model;
+    private final boolean color;
+    private final NavigableMap<OID, Variable> values = new TreeMap<>();
+
+    /**
+     * @param supplies   Rows of the supply table; colorants come first
+     * @param trays      Rows of the input table
+     * @param mediaSizes Rows of the media size column
+     * @param random     Source of serial numbers, levels and counters
+     */
+    public SimulatedPrinter(Model model, boolean color, int supplies, int trays, int mediaSizes, Random random) {
+        this.model = model;
+        this.color = color;
+        String name = color ? model.colorName : model.monoName;
+        String serial = String.format("%c%010d", model.name().charAt(0), random.nextInt(Integer.MAX_VALUE));
+        byte[] mac = new byte[6];
+        random.nextBytes(mac);
+        mac[0] &= (byte) 0xFC; // unicast, globally administered
+        long total = 1_000 + random.nextInt(500_000);
+        long colorPages = color ? total * (20 + random.nextInt(40)) / 100 : 0;
+
+        put(SYS_DESCR, new OctetString(name + "; firmware 2024.1." + random.nextInt(100)));
+        put(PrinterDiscoveryConfig.SYSTEM_OBJECT_ID, new OID("1.3.6.1.4.1." + model.enterprise + ".1." + (color ? 1 : 2)));
+        put(SYS_UP_TIME, new TimeTicks(random.nextInt(30 * 24 * 3600) * 100L));
+        put(PrinterDiscoveryConfig.SYSTEM_NAME, new OctetString(name));
+        put(PrinterDiscoveryConfig.MAC_ADDRESS, new OctetString(mac));
+        put(HR_DEVICE_TYPE, HR_DEVICE_PRINTER);
+        put(HR_DEVICE_DESCR, new OctetString(name));
+        put(PrinterDiscoveryConfig.PRINTER_STATUS, new Integer32(random.nextInt(20) == 0 ? 3 : 2));
+        put(HR_PRINTER_STATUS, new Integer32(3)); // idle
+        put(HR_PRINTER_ERROR_STATE, new OctetString(new byte[]{0}));
+        put(PrinterDiscoveryConfig.PRINTER_MODEL, new OctetString(name));
+        put(PrinterDiscoveryConfig.SERIAL_NUMBER, new OctetString(serial));
+        put(PrinterDiscoveryConfig.TOTAL_PAGE_COUNT, new Counter32(total));
+        put(COLOR_PAGE_COUNT, new Counter32(colorPages));
+        put(PrinterDiscoveryConfig.getVendorSpecificOid(model.vendor, VendorPollPlan.PRINTER_MODEL), new OctetString(name));
+        put(PrinterDiscoveryConfig.getVendorSpecificOid(model.vendor, VendorPollPlan.COLOR_PAGE_COUNT), new Counter32(colorPages));
+        put(PrinterDiscoveryConfig.getVendorSpecificOid(model.vendor, VendorPollPlan.MONO_PAGE_COUNT), new Counter32(total - colorPages));
+
+        int colorants = color ? COLORANTS.length : 1;
+        for (int i = 1; i <= supplies; i++) {
+            boolean toner = i <= colorants;
+            String description = toner ? COLORANTS[i - 1] + " Toner Cartridge"
+                    : EXTRA_SUPPLIES[(i - colorants - 1) % EXTRA_SUPPLIES.length]
+                    + (i - colorants > EXTRA_SUPPLIES.length ? " " + (i - colorants) : "");
+            int max = toner ? 100 : 1000;
+            put(PrinterDiscoveryConfig.TONER_DESCRIPTION + ".1." + i, new OctetString(description));
+            put(SUPPLY_CLASS + ".1." + i, new Integer32(toner ? 3 : 4)); // supplyThatIsConsumed / receptacleThatIsFilled
+            put(SUPPLY_TYPE + ".1." + i, new Integer32(toner ? 3 : 1)); // toner / other
+            put(PrinterDiscoveryConfig.TONER_MAX_LEVELS + ".1." + i, new Integer32(max));
+            put(PrinterDiscoveryConfig.TONER_LEVELS + ".1." + i, new Integer32(random.nextInt(max + 1)));
+        }
+        for (int i = 1; i <= trays; i++) {
+            int max = i == 1 ? 100 : 500; // tray 1 is the bypass tray
+            put(PrinterDiscoveryConfig.PAPER_TRAY_MAX_LEVELS + ".1." + i, new Integer32(max));
+            put(PrinterDiscoveryConfig.PAPER_TRAY_LEVELS + ".1." + i, new Integer32(random.nextInt(max + 1)));
+            put(INPUT_MEDIA_NAME + ".1." + i, new OctetString(MEDIA[(i - 1) % MEDIA.length]));
+            put(PrinterDiscoveryConfig.PAPER_TRAY_DESCRIPTION + ".1." + i, new OctetString(i == 1 ? "Bypass Tray" : "Tray " + i));
+        }
+        for (int i = 1; i <= mediaSizes; i++) {
+            put(PrinterDiscoveryConfig.MEDIA_SIZE_SUPPORTED + ".1." + i, new OctetString(MEDIA[(i - 1) % MEDIA.length]));
+        }
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    public boolean isColor() {
+        return color;
+    }
+
+    private void put(String oid, Variable value) {
+        if (oid != null) values.put(new OID(oid), value);
+    }
+
+    /**
+     * The response this printer's agent sends to a request
+     */
+    public PDU answer(PDU request) {
+        PDU response = new PDU();
+        response.setType(PDU.RESPONSE);
+        response.setRequestID(request.getRequestID());
+        List<? extends VariableBinding> requested = request.getVariableBindings();
+
+        switch (request.getType()) {
+            case PDU.GET -> {
+                for (VariableBinding vb : requested) {
+                    response.add(new VariableBinding(vb.getOid(), get(vb.getOid())));
+                }
+            }
+            case PDU.GETNEXT -> {
+                for (VariableBinding vb : requested) {
+                    response.add(next(vb.getOid()));
+                }
+            }
+            case PDU.GETBULK -> {
+                int nonRepeaters = Math.min(Math.max(0, request.getNonRepeaters()), requested.size());
+                for (int i = 0; i < nonRepeaters; i++) {
+                    response.add(next(requested.get(i).getOid()));
+                }
+                int repeaters = requested.size() - nonRepeaters;
+                if (repeaters == 0) break;
+                OID[] cursor = new OID[repeaters];
+                for (int j = 0; j < repeaters; j++) {
+                    cursor[j] = requested.get(nonRepeaters + j).getOid();
+                }
+                int rows = Math.min(Math.max(0, request.getMaxRepetitions()), Math.max(1, (MAX_BULK_BINDINGS - nonRepeaters) / repeaters));
+                for (int r = 0; r < rows; r++) {
+                    for (int j = 0; j < repeaters; j++) {
+                        VariableBinding vb = next(cursor[j]);
+                        response.add(vb);
+                        cursor[j] = vb.getOid();
+                    }
+                }
+            }
+            default -> response.setErrorStatus(PDU.genErr);
+        }
+        return response;
+    }
+
+    private Variable get(OID oid) {
+        Variable value = values.get(oid);
+        return value != null ? value : Null.noSuchObject;
+    }
+
+    private VariableBinding next(OID oid) {
+        Map.Entry<OID, Variable> entry = values.higherEntry(oid);
+        return entry != null ? new VariableBinding(entry.getKey(), entry.getValue())
+                : new VariableBinding(oid, Null.endOfMibView);
+    }
+}
@@ -0,0 +1,89 @@
+package dev.amine.SNMP;
+
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.PDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.Target;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.event.ResponseListener;
+import org.snmp4j.smi.Address;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small fixed set of SNMP sessions shared by every probe of a sweep.
+ * Each session owns one UDP socket and one listener thread, no matter how
+ * many requests are in flight on it.
+ */
+@Slf4j
+public class SnmpSessionPool implements AutoCloseable {
+    private final Snmp[] sessions;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public SnmpSessionPool(int size) throws IOException {
+        sessions = new Snmp[Math.max(1, size)];
+        try {
+            for (int i = 0; i < sessions.length; i++) {
+                Snmp snmp = new Snmp(new DefaultUdpTransportMapping());
+                snmp.listen();
+                sessions[i] = snmp;
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        log.info("Opened {} shared SNMP session(s)", sessions.length);
+    }
+
+    /**
+     * Pick a session round-robin, for callers that still need the blocking API
+     * (TableUtils walks, single GETs)
+     */
+    public Snmp session() {
+        return sessions[Math.floorMod(next.getAndIncrement(), sessions.length)];
+    }
+
+    /**
+     * Send a request without blocking the calling thread
+     *
+     * @return A future completed with the response PDU, or with null on timeout.
+     * The future completes on the SNMP listener or timer thread, so dependent
+     * stages must not block.
+     */
+    public CompletableFuture<PDU> send(PDU pdu, Target<?> target) {
+        CompletableFuture<PDU> result = new CompletableFuture<>();
+        ResponseListener listener = new ResponseListener() {
+            @Override
+            public <A extends Address> void onResponse(ResponseEvent<A> event) {
+                // Always cancel, otherwise the pending request is kept until it times out
+                ((Snmp) event.getSource()).cancel(event.getRequest(), this);
+                if (event.getError() != null) {
+                    result.completeExceptionally(event.getError());
+                } else {
+                    result.complete(event.getResponse());
+                }
+            }
+        };
+        try {
+            session().send(pdu, target, null, listener);
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        for (Snmp snmp : sessions) {
+            if (snmp == null) continue;
+            try {
+                snmp.close();
+            } catch (IOException e) {
+                log.debug("Error closing SNMP session: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package dev.amine.SNMP;
+
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.Variable;
+
+/**
+ * Reads values out of varbinds without going through their string form,
+ * which every decoder used to do for numbers and for the
+ * noSuchObject/noSuchInstance checks.
+ */
+public final class SnmpValues {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private SnmpValues() {
+    }
+
+    /**
+     * Whether the varbind carries a value, i.e. is not noSuchObject,
+     * noSuchInstance or endOfMibView
+     */
+    public static boolean isPresent(Variable variable) {
+        return variable != null && !variable.isException();
+    }
+
+    /**
+     * @throws NumberFormatException If the value is neither numeric nor a number in text
+     */
+    public static long toLong(Variable variable) {
+        try {
+            return variable.toLong();
+        } catch (UnsupportedOperationException e) {
+            // Some firmwares report counters as strings
+            return Long.parseLong(variable.toString().trim());
+        }
+    }
+
+    /**
+     * @throws NumberFormatException If the value is neither numeric nor a number in text
+     */
+    public static int toInt(Variable variable) {
+        try {
+            return variable.toInt();
+        } catch (UnsupportedOperationException e) {
+            return Integer.parseInt(variable.toString().trim());
+        }
+    }
+
+    /**
+     * The last six bytes of an octet string as AA:BB:CC:DD:EE:FF
+     *
+     * @return The address, or null if the value is too short
+     */
+    public static String toMacAddress(Variable variable) {
+        if (!(variable instanceof OctetString octets)) {
+            return isPresent(variable) ? variable.toString() : null;
+        }
+        int length = octets.length();
+        if (length < 6) return null;
+
+        char[] mac = new char[17];
+        for (int i = 0; i < 6; i++) {
+            int b = octets.get(length - 6 + i) & 0xFF;
+            mac[i * 3] = HEX[b >>> 4];
+            mac[i * 3 + 1] = HEX[b & 0x0F];
+            if (i < 5) mac[i * 3 + 2] = ':';
+        }
+        return new String(mac);
+    }
+}
@@ -0,0 +1,82 @@
+package dev.amine.SNMP;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The model names that already have a tarif. Loaded in one query and
+ * reloaded when older than the TTL, so that persisting a printer does not
+ * have to ask the database whether its model is known. The reload runs on
+ * the connection of the write that finds the set stale, so it never needs
+ * a second connection from the pool.
+ */
+@Slf4j
+public class TarifCache {
+    private final Loader loader;
+    private final long ttlNanos;
+    private final Set<String> models = ConcurrentHashMap.newKeySet();
+    private volatile long loadedAt;
+    private volatile boolean loaded;
+
+    /**
+     * Reads the model names that have a tarif
+     */
+    @FunctionalInterface
+    public interface Loader {
+        Collection<String> load(Connection conn) throws SQLException;
+    }
+
+    public TarifCache(Loader loader, long ttl, TimeUnit unit) {
+        this.loader = loader;
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    public boolean contains(String modelName) {
+        return models.contains(modelName);
+    }
+
+    public void add(String modelName) {
+        models.add(modelName);
+    }
+
+    public void addAll(Collection<String> modelNames) {
+        models.addAll(modelNames);
+    }
+
+    public void invalidate(String modelName) {
+        models.remove(modelName);
+    }
+
+    /**
+     * Reload the set through the given connection if it is older than the
+     * TTL. A failed reload keeps the set loaded before and is tried again
+     * on the next call.
+     *
+     * @throws SQLException If the set was never loaded and cannot be
+     */
+    public void refreshIfStale(Connection conn) throws SQLException {
+        if (loaded && System.nanoTime() - loadedAt < ttlNanos) return;
+        synchronized (this) {
+            if (loaded && System.nanoTime() - loadedAt < ttlNanos) return;
+            Collection<String> current;
+            try {
+                current = loader.load(conn);
+            } catch (SQLException e) {
+                if (!loaded) throw e;
+                log.warn("Could not reload tarif models, keeping the {} known: {}", models.size(), e.getMessage());
+                return;
+            }
+            models.retainAll(current);
+            models.addAll(current);
+            loadedAt = System.nanoTime();
+            loaded = true;
+            log.debug("Loaded {} tarif model(s)", models.size());
+        }
+    }
+}
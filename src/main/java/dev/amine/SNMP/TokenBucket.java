@@ -0,0 +1,57 @@
+package dev.amine.SNMP;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket pacing packets to a given rate. Tokens may go negative: each
+ * caller reserves its slot and sleeps until that slot comes up, so waiting
+ * callers are served in order without a queue.
+ */
+public class TokenBucket {
+    private final double burst;
+    private double ratePerSecond;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double ratePerSecond, double burst) {
+        this.ratePerSecond = Math.max(0.1, ratePerSecond);
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Take one token, sleeping until it is available
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Take one token and return how long the caller has to wait before using it
+     */
+    public synchronized long reserve() {
+        refill();
+        tokens -= 1;
+        if (tokens >= 0) return 0;
+        return (long) (-tokens / ratePerSecond * 1_000_000_000L);
+    }
+
+    public synchronized double getRate() {
+        return ratePerSecond;
+    }
+
+    public synchronized void setRate(double ratePerSecond) {
+        refill();
+        this.ratePerSecond = Math.max(0.1, ratePerSecond);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) / 1_000_000_000.0 * ratePerSecond);
+        lastRefill = now;
+    }
+}
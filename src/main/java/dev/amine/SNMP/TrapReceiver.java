@@ -0,0 +1,195 @@
+package dev.amine.SNMP;
+
+import dev.amine.SNMP.PrinterDiscoveryManager.PollTier;
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.*;
+import org.snmp4j.mp.StateReference;
+import org.snmp4j.mp.StatusInformation;
+import org.snmp4j.smi.*;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Listens for traps and informs from printers. Printer-MIB printerV2Alert
+ * notifications are decoded and stored as alerts right away, and any
+ * notification from a printer triggers a poll of that printer alone, so
+ * a jam or an empty tray shows up without waiting for the next poll.
+ * <p>
+ * A trap is easily spoofed, so it is only acted on when it comes from a
+ * printer the agent already polls: traps never start discovery, and never
+ * make the agent send its communities to an address of the sender's choice.
+ * The printer's address is the UDP sender, except for configured relays,
+ * whose snmpTrapAddress or v1 agent-addr is taken instead.
+ */
+@Slf4j
+public class TrapReceiver implements CommandResponder, AutoCloseable {
+    private static final OID SNMP_TRAP_OID = new OID("1.3.6.1.6.3.1.1.4.1.0");
+    private static final OID SNMP_TRAP_ADDRESS = new OID("1.3.6.1.6.3.18.1.3.0");
+    // printerV2Alert (printerV2AlertPrefix.1); as an SNMPv1 trap (RFC 3584) it is enterprise 43.18.2, specific-trap 1
+    private static final OID PRINTER_V1_ENTERPRISE = new OID("1.3.6.1.2.1.43.18.2");
+    private static final OID PRINTER_V2_ALERT = new OID("1.3.6.1.2.1.43.18.2.0.1");
+    private static final long REPOLL_MIN_NANOS = TimeUnit.SECONDS.toNanos(PrinterDiscoveryConfig.TRAP_REPOLL_MIN_SECONDS);
+    private static final LongAdder IGNORED = Metrics.counter("printwatch_traps_ignored_total",
+            "Traps ignored because they do not come from a known printer");
+    private static final LongAdder DROPPED = Metrics.counter("printwatch_traps_dropped_total",
+            "Traps dropped because the trap handler queue was full");
+
+    private final DatabaseManager dbManager;
+    private final PollScheduler pollScheduler;
+    private final Set<String> communities = Set.of(PrinterDiscoveryConfig.COMMUNITY);
+    // Only touched on the handler thread; entries older than the repoll spacing are pruned
+    private final Map<String, Long> lastRepoll = new HashMap<>();
+    private long lastPrune = System.nanoTime();
+    // Database writes and polls are kept off the SNMP listener thread, on a bounded queue
+    private final ThreadPoolExecutor handler = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, PrinterDiscoveryConfig.TRAP_QUEUE_CAPACITY)),
+            Thread.ofPlatform().name("trap-handler").daemon().factory(),
+            (task, executor) -> {
+                if (!executor.isShutdown()) DROPPED.increment();
+            });
+    private Snmp snmp;
+
+    public TrapReceiver(DatabaseManager dbManager, PollScheduler pollScheduler) {
+        this.dbManager = dbManager;
+        this.pollScheduler = pollScheduler;
+    }
+
+    /**
+     * @return false if the port could not be bound; the agent then relies on polling alone
+     */
+    public boolean start(int port) {
+        try {
+            TransportMapping<UdpAddress> transport = new DefaultUdpTransportMapping(new UdpAddress("0.0.0.0/" + port));
+            snmp = new Snmp(transport);
+            snmp.addCommandResponder(this);
+            snmp.listen();
+            log.info("Listening for printer traps on UDP port {}", port);
+            return true;
+        } catch (IOException e) {
+            log.error("Could not listen for traps on UDP port {}: {}", port, e.getMessage());
+            close();
+            return false;
+        }
+    }
+
+    @Override
+    public <A extends Address> void processPdu(CommandResponderEvent<A> event) {
+        PDU pdu = event.getPDU();
+        if (pdu == null) return;
+        int type = pdu.getType();
+        if (type != PDU.TRAP && type != PDU.V1TRAP && type != PDU.NOTIFICATION && type != PDU.INFORM) return;
+        event.setProcessed(true);
+
+        String community = event.getSecurityName() != null
+                ? new String(event.getSecurityName(), StandardCharsets.UTF_8) : null;
+        if (!communities.contains(community)) {
+            log.debug("Ignoring trap from {} with unknown community", event.getPeerAddress());
+            return;
+        }
+        String ip = sourceOf(event, pdu);
+        if (ip == null) return;
+        if (!pollScheduler.isKnown(ip)) {
+            IGNORED.increment();
+            log.debug("Ignoring trap about {}, not a known printer", ip);
+            return;
+        }
+        if (type == PDU.INFORM) {
+            acknowledge(event);
+        }
+        // Decoding the bindings is left to the handler, the listener only sorts PDUs out
+        handler.execute(() -> handle(ip, pdu));
+    }
+
+    private void handle(String ip, PDU pdu) {
+        try {
+            PrtAlert alert = isPrinterAlert(pdu) ? PrtAlert.decode(pdu.getVariableBindings()) : null;
+            if (alert != null) {
+                String message = alert.message(ip);
+                log.info("Trap from {}: {}", ip, message);
+                dbManager.insertTrapAlert(ip, message);
+            } else {
+                log.debug("Trap from {} without a printer alert", ip);
+            }
+
+            long now = System.nanoTime();
+            if (now - lastPrune >= REPOLL_MIN_NANOS) {
+                lastRepoll.values().removeIf(last -> now - last >= REPOLL_MIN_NANOS);
+                lastPrune = now;
+            }
+            Long last = lastRepoll.get(ip);
+            if (last == null || now - last >= REPOLL_MIN_NANOS) {
+                lastRepoll.put(ip, now);
+                pollScheduler.pollNow(ip, alert != null && alert.concernsInventory() ? PollTier.INVENTORY : PollTier.STATUS);
+            }
+        } catch (RuntimeException e) {
+            log.error("Error handling trap from {}: {}", ip, e.getMessage(), e);
+        }
+    }
+
+    private boolean isPrinterAlert(PDU pdu) {
+        if (pdu instanceof PDUv1 v1) {
+            return PRINTER_V1_ENTERPRISE.equals(v1.getEnterprise()) && v1.getSpecificTrap() == 1;
+        }
+        Variable trapOid = pdu.getVariable(SNMP_TRAP_OID);
+        return trapOid instanceof OID oid && oid.equals(PRINTER_V2_ALERT);
+    }
+
+    /**
+     * The printer's address: the sender, or for a configured relay the
+     * snmpTrapAddress (or v1 agent-addr) it forwarded. Both are set by
+     * whoever built the PDU, so they are not taken from anyone else.
+     */
+    private String sourceOf(CommandResponderEvent<?> event, PDU pdu) {
+        if (!(event.getPeerAddress() instanceof IpAddress peer)) return null;
+        String sender = peer.getInetAddress().getHostAddress();
+        if (!PrinterDiscoveryConfig.TRAP_RELAYS.contains(sender)) return sender;
+
+        for (VariableBinding vb : pdu.getVariableBindings()) {
+            if (SNMP_TRAP_ADDRESS.equals(vb.getOid()) && vb.getVariable() instanceof IpAddress address) {
+                return address.getInetAddress().getHostAddress();
+            }
+        }
+        if (pdu instanceof PDUv1 v1 && v1.getAgentAddress() != null
+                && !v1.getAgentAddress().getInetAddress().isAnyLocalAddress()) {
+            return v1.getAgentAddress().getInetAddress().getHostAddress();
+        }
+        return sender;
+    }
+
+    private <A extends Address> void acknowledge(CommandResponderEvent<A> event) {
+        PDU response = (PDU) event.getPDU().clone();
+        response.setType(PDU.RESPONSE);
+        response.setErrorStatus(PDU.noError);
+        response.setErrorIndex(0);
+        StateReference<A> reference = event.getStateReference();
+        try {
+            event.getMessageDispatcher().returnResponsePdu(event.getMessageProcessingModel(),
+                    event.getSecurityModel(), event.getSecurityName(), event.getSecurityLevel(),
+                    response, event.getMaxSizeResponsePDU(), reference, new StatusInformation());
+        } catch (MessageException e) {
+            log.debug("Could not acknowledge inform from {}: {}", event.getPeerAddress(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        handler.shutdown();
+        if (snmp != null) {
+            try {
+                snmp.close();
+            } catch (IOException e) {
+                log.debug("Error closing trap listener: {}", e.getMessage());
+            }
+            snmp = null;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package dev.amine.SNMP;
+
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.smi.OID;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * Tells a printer's vendor from its sysObjectID, through a prefix trie of
+ * the OIDs in printer-vendors.properties (and printwatch.vendors.file if
+ * set). The name a printer reports is only looked at when it has no
+ * sysObjectID or an unknown one.
+ */
+@Slf4j
+public final class VendorClassifier {
+    public static final String UNKNOWN = "Unknown";
+    private static final String BUNDLED = "/printer-vendors.properties";
+    // Optional file of extra or corrected prefixes, in the same format as the bundled one
+    private static final String VENDORS_FILE = AgentConfig.getString("printwatch.vendors.file", "");
+
+    // Fallback on the reported name, first match wins
+    private static final List<NamePattern> NAME_PATTERNS = List.of(
+            new NamePattern(Pattern.compile("versalink|xerox", Pattern.CASE_INSENSITIVE), "Xerox"),
+            new NamePattern(Pattern.compile("konica|bizhub", Pattern.CASE_INSENSITIVE), "Konica Minolta"),
+            new NamePattern(Pattern.compile("hp|laserjet", Pattern.CASE_INSENSITIVE), "HP"),
+            new NamePattern(Pattern.compile("canon|imagerunner|\\bir-adv", Pattern.CASE_INSENSITIVE), "Canon"),
+            new NamePattern(Pattern.compile("brother", Pattern.CASE_INSENSITIVE), "Brother"),
+            new NamePattern(Pattern.compile("epson", Pattern.CASE_INSENSITIVE), "Epson"));
+
+    private static final Node ROOT = load();
+
+    private VendorClassifier() {
+    }
+
+    private record NamePattern(Pattern pattern, String vendor) {
+    }
+
+    private static final class Node {
+        private final Map<Integer, Node> children = new HashMap<>(4);
+        private String vendor;
+    }
+
+    /**
+     * @return The vendor of the longest known prefix of the OID, or null if none matches
+     */
+    public static String ofObjectId(OID sysObjectId) {
+        if (sysObjectId == null) return null;
+        String vendor = null;
+        Node node = ROOT;
+        for (int i = 0; i < sysObjectId.size() && node != null; i++) {
+            node = node.children.get(sysObjectId.get(i));
+            if (node != null && node.vendor != null) vendor = node.vendor;
+        }
+        return vendor;
+    }
+
+    /**
+     * Guess from the name a printer reports, e.g. its sysName
+     *
+     * @return The vendor, or {@link #UNKNOWN}
+     */
+    public static String ofName(String name) {
+        if (name == null || name.isEmpty()) return UNKNOWN;
+        for (NamePattern candidate : NAME_PATTERNS) {
+            if (candidate.pattern().matcher(name).find()) return candidate.vendor();
+        }
+        return UNKNOWN;
+    }
+
+    private static Node load() {
+        Node root = new Node();
+        try (InputStream in = VendorClassifier.class.getResourceAsStream(BUNDLED)) {
+            if (in == null) {
+                log.error("Vendor table {} is missing, vendors will be guessed from printer names", BUNDLED);
+            } else {
+                addAll(root, in, BUNDLED);
+            }
+        } catch (IOException e) {
+            log.error("Could not read vendor table {}: {}", BUNDLED, e.getMessage());
+        }
+
+        if (!VENDORS_FILE.isEmpty()) {
+            try (InputStream in = Files.newInputStream(Path.of(VENDORS_FILE))) {
+                addAll(root, in, VENDORS_FILE);
+            } catch (IOException e) {
+                log.error("Could not read vendor table {}: {}", VENDORS_FILE, e.getMessage());
+            }
+        }
+        return root;
+    }
+
+    private static void addAll(Node root, InputStream in, String source) throws IOException {
+        Properties entries = new Properties();
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            entries.load(reader);
+        }
+        entries.forEach((prefix, vendor) -> {
+            try {
+                OID oid = new OID(prefix.toString().trim());
+                if (oid.size() == 0) throw new IllegalArgumentException("empty OID");
+                Node node = root;
+                for (int i = 0; i < oid.size(); i++) {
+                    node = node.children.computeIfAbsent(oid.get(i), key -> new Node());
+                }
+                node.vendor = vendor.toString().trim();
+            } catch (RuntimeException e) {
+                log.warn("Ignoring vendor prefix '{}' in {}: {}", prefix, source, e.getMessage());
+            }
+        });
+        log.debug("Loaded {} vendor prefix(es) from {}", entries.size(), source);
+    }
+}
@@ -0,0 +1,82 @@
+package dev.amine.SNMP;
+
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.PDU;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The scalar vendor OIDs of one vendor, compiled once into OID objects so
+ * that they can ride along in the same GET as the basic info varbinds.
+ */
+@Slf4j
+public final class VendorPollPlan {
+    public static final String PRINTER_MODEL = "PRINTER_MODEL";
+    public static final String COLOR_PAGE_COUNT = "COLOR_PAGE_COUNT";
+    public static final String MONO_PAGE_COUNT = "MONO_PAGE_COUNT";
+
+    // Only the keys PrinterDevice has a place for are worth a varbind
+    private static final List<String> POLLED_KEYS = List.of(PRINTER_MODEL, COLOR_PAGE_COUNT, MONO_PAGE_COUNT);
+
+    private final String vendor;
+    private final OID[] oids;
+    private final Map<OID, String> keysByOid;
+
+    private VendorPollPlan(String vendor, OID[] oids, Map<OID, String> keysByOid) {
+        this.vendor = vendor;
+        this.oids = oids;
+        this.keysByOid = keysByOid;
+    }
+
+    public static VendorPollPlan compile(String vendor, Map<String, String> vendorOids) {
+        Map<OID, String> keysByOid = new HashMap<>();
+        for (String key : POLLED_KEYS) {
+            String oid = vendorOids.get(key);
+            if (oid != null) {
+                keysByOid.put(new OID(oid), key);
+            }
+        }
+        return new VendorPollPlan(vendor, keysByOid.keySet().toArray(new OID[0]), Map.copyOf(keysByOid));
+    }
+
+    public String getVendor() {
+        return vendor;
+    }
+
+    public void addTo(PDU pdu) {
+        for (OID oid : oids) {
+            pdu.add(new VariableBinding(oid));
+        }
+    }
+
+    /**
+     * Copy the vendor values found in a response onto the device. Varbinds that
+     * are not part of this plan are ignored, so the response may also carry the
+     * basic info varbinds.
+     */
+    public void apply(PDU response, PrinterDevice device) {
+        for (VariableBinding vb : response.getVariableBindings()) {
+            String key = keysByOid.get(vb.getOid());
+            Variable variable = vb.getVariable();
+            if (key == null || variable == null || variable.isException()) continue;
+
+            try {
+                switch (key) {
+                    case PRINTER_MODEL -> device.setModelName(variable.toString());
+                    case COLOR_PAGE_COUNT -> device.setColorPageCount(SnmpValues.toLong(variable));
+                    case MONO_PAGE_COUNT -> device.setMonoPageCount(SnmpValues.toLong(variable));
+                    default -> {
+                    }
+                }
+            } catch (RuntimeException e) {
+                Metrics.PARSE_ERRORS.increment();
+                log.debug("Error parsing {} for {}: {}", key, device.getIpAddress(), variable);
+            }
+        }
+    }
+}
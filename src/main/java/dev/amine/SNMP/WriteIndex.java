@@ -0,0 +1,94 @@
+package dev.amine.SNMP;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Last write time per printer and table, kept in process so that the write
+ * paths can decide whether data is recent without a COUNT(*) round trip.
+ * Bootstrapped once from a single grouped query; from then on every write
+ * made through DatabaseManager updates it.
+ */
+@Slf4j
+public class WriteIndex {
+    public enum Table {COUNTS, COMPONENTS, ALERTS}
+
+    // How far back the bootstrap looks; older rows are never "recent"
+    private static final int BOOTSTRAP_HOURS = 24;
+
+    private final Map<Table, Map<UUID, Long>> lastWrites = new EnumMap<>(Table.class);
+    private volatile boolean bootstrapped;
+
+    public WriteIndex() {
+        for (Table table : Table.values()) {
+            lastWrites.put(table, new ConcurrentHashMap<>());
+        }
+    }
+
+    public boolean isBootstrapped() {
+        return bootstrapped;
+    }
+
+    /**
+     * Load the last write times of the past day. Ages are computed by the
+     * database, so clock skew between the agent and the cluster does not matter.
+     */
+    public synchronized void bootstrap(Connection conn) throws SQLException {
+        if (bootstrapped) return;
+        String sql = """
+        SELECT 'COUNTS' AS table_name, printer_id,
+               EXTRACT(EPOCH FROM CURRENT_TIMESTAMP - MAX(time_of_update)) * 1000 AS age_ms
+        FROM COUNTS WHERE time_of_update >= CURRENT_TIMESTAMP - make_interval(hours => ?) GROUP BY printer_id
+        UNION ALL
+        SELECT 'COMPONENTS', printer_id, EXTRACT(EPOCH FROM CURRENT_TIMESTAMP - MAX(time_of_update)) * 1000
+        FROM COMPONENTS WHERE time_of_update >= CURRENT_TIMESTAMP - make_interval(hours => ?) GROUP BY printer_id
+        UNION ALL
+        SELECT 'ALERTS', printer_id, EXTRACT(EPOCH FROM CURRENT_TIMESTAMP - MAX(time_of_update)) * 1000
+        FROM ALERTS WHERE time_of_update >= CURRENT_TIMESTAMP - make_interval(hours => ?) GROUP BY printer_id
+        """;
+
+        long now = System.currentTimeMillis();
+        int rows = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, BOOTSTRAP_HOURS);
+            pstmt.setInt(2, BOOTSTRAP_HOURS);
+            pstmt.setInt(3, BOOTSTRAP_HOURS);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Table table = Table.valueOf(rs.getString(1));
+                    UUID printerId = rs.getObject(2, UUID.class);
+                    long writtenAt = now - rs.getLong(3);
+                    lastWrites.get(table).merge(printerId, writtenAt, Math::max);
+                    rows++;
+                }
+            }
+        }
+        bootstrapped = true;
+        log.info("Write index bootstrapped with {} entries", rows);
+    }
+
+    public boolean wasWrittenWithin(Table table, UUID printerId, Duration window) {
+        Long writtenAt = lastWrites.get(table).get(printerId);
+        return writtenAt != null && System.currentTimeMillis() - writtenAt < window.toMillis();
+    }
+
+    /**
+     * Time of the last write, or null if there is none in the index
+     */
+    public Long getLastWrite(Table table, UUID printerId) {
+        return lastWrites.get(table).get(printerId);
+    }
+
+    public void recordWrite(Table table, UUID printerId) {
+        lastWrites.get(table).put(printerId, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,108 @@
+package dev.amine.SNMP;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AddressRangeTest {
+
+    @Test
+    void cidrLeavesOutNetworkAndBroadcast() {
+        AddressRange range = AddressRange.parse("10.0.0.0/24");
+        List<String> addresses = collect(range);
+        assertEquals(254, range.size());
+        assertEquals("10.0.0.1", addresses.get(0));
+        assertEquals("10.0.0.254", addresses.get(addresses.size() - 1));
+        assertEquals("10.0.0.0/24", range.toString());
+    }
+
+    @Test
+    void cidrIsAlignedToItsNetwork() {
+        AddressRange range = AddressRange.parse("192.168.1.77/30");
+        assertEquals(List.of("192.168.1.77", "192.168.1.78"), collect(range));
+        assertEquals("192.168.1.76/30", range.toString());
+    }
+
+    @Test
+    void pointToPointAndHostBlocksKeepEveryAddress() {
+        assertEquals(List.of("10.0.0.4", "10.0.0.5"), collect(AddressRange.parse("10.0.0.4/31")));
+        assertEquals(List.of("10.0.0.4"), collect(AddressRange.parse("10.0.0.4/32")));
+    }
+
+    @Test
+    void threeOctetFormIsASlash24() {
+        AddressRange range = AddressRange.parse("192.168.1");
+        assertEquals(254, range.size());
+        assertEquals("192.168.1.0/24", range.toString());
+    }
+
+    @Test
+    void dashedRangeIsInclusive() {
+        AddressRange range = AddressRange.parse(" 10.0.0.250-10.0.1.2 ");
+        assertEquals(List.of("10.0.0.250", "10.0.0.251", "10.0.0.252", "10.0.0.253", "10.0.0.254", "10.0.0.255",
+                "10.0.1.0", "10.0.1.1", "10.0.1.2"), collect(range));
+    }
+
+    @Test
+    void singleAddress() {
+        AddressRange range = AddressRange.parse("172.16.0.9");
+        assertEquals(1, range.size());
+        assertTrue(range.contains(AddressRange.toInt("172.16.0.9")));
+        assertFalse(range.contains(AddressRange.toInt("172.16.0.10")));
+    }
+
+    @Test
+    void addressesAboveTheSignBitCompareUnsigned() {
+        AddressRange range = AddressRange.parse("200.0.0.0/8");
+        assertEquals(16777214, range.size());
+        assertTrue(range.contains(AddressRange.toInt("200.255.255.254")));
+        assertFalse(range.contains(AddressRange.toInt("10.0.0.1")));
+        assertEquals("255.255.255.254", AddressRange.toString(AddressRange.toInt("255.255.255.254")));
+    }
+
+    @Test
+    void rejectsInvalidSpecifications() {
+        assertThrows(IllegalArgumentException.class, () -> AddressRange.parse("10.0.0.256"));
+        assertThrows(IllegalArgumentException.class, () -> AddressRange.parse("10.0.0.0/33"));
+        assertThrows(IllegalArgumentException.class, () -> AddressRange.parse("10.0.0.0/x"));
+        assertThrows(IllegalArgumentException.class, () -> AddressRange.parse("10.0.0.9-10.0.0.1"));
+        assertThrows(IllegalArgumentException.class, () -> AddressRange.parse("printer"));
+        assertThrows(IllegalArgumentException.class, () -> AddressRange.parse("10.0.0.1.2"));
+    }
+
+    @Test
+    void scanRangeSkipsExclusionsAndOverlaps() {
+        ScanRange range = ScanRange.parse("10.0.0.0/29, 10.0.0.4-10.0.0.9 !10.0.0.2,!10.0.0.8/31");
+        assertEquals(2, range.getIncludes().size());
+        assertEquals(2, range.getExcludes().size());
+        // The /29 stops short of its broadcast address, so .7 only comes from the dashed range
+        assertEquals(List.of("10.0.0.1", "10.0.0.3", "10.0.0.4", "10.0.0.5", "10.0.0.6", "10.0.0.7"), collect(range));
+        assertTrue(range.contains(AddressRange.toInt("10.0.0.5")));
+        assertFalse(range.contains(AddressRange.toInt("10.0.0.2")));
+        assertFalse(range.contains(AddressRange.toInt("10.0.0.9")));
+        assertEquals("10.0.0.0/29", range.blockOf(AddressRange.toInt("10.0.0.4")).toString());
+        assertNull(range.blockOf(AddressRange.toInt("10.0.1.1")));
+    }
+
+    @Test
+    void scanRangeNeedsSomethingToInclude() {
+        assertThrows(IllegalArgumentException.class, () -> ScanRange.parse("!10.0.0.0/24"));
+        assertThrows(IllegalArgumentException.class, () -> ScanRange.parse(" , "));
+    }
+
+    @Test
+    void scanRangeOfExcludedEverythingIsEmpty() {
+        ScanRange range = ScanRange.parse("10.0.0.1, !10.0.0.0/24");
+        assertFalse(range.iterator().hasNext());
+        assertEquals(1, range.estimatedSize());
+    }
+
+    private static List<String> collect(Iterable<String> range) {
+        List<String> addresses = new ArrayList<>();
+        range.forEach(addresses::add);
+        return addresses;
+    }
+}
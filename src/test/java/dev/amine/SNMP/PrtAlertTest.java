@@ -0,0 +1,85 @@
+package dev.amine.SNMP;
+
+import org.junit.jupiter.api.Test;
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.Null;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrtAlertTest {
+    private static final String ALERT_ENTRY = "1.3.6.1.2.1.43.18.1.1.";
+
+    @Test
+    void decodesEveryColumn() {
+        PrtAlert alert = PrtAlert.decode(bindings(PrtAlert.SEVERITY_CRITICAL, 13, 1, 4, 8, "Jam in tray 2 "));
+        assertEquals(new PrtAlert(PrtAlert.SEVERITY_CRITICAL, 13, 1, 4, 8, "Jam in tray 2"), alert);
+        assertEquals("ALERT: Critical: Paper jam (Jam in tray 2) - 10.0.0.5", alert.message("10.0.0.5"));
+    }
+
+    @Test
+    void unknownCodesAndSeveritiesStillMakeAMessage() {
+        PrtAlert alert = PrtAlert.decode(bindings(1, 5, 1, 0, 4242, null));
+        assertEquals("ALERT: Notice: Printer alert 4242 - 10.0.0.5", alert.message("10.0.0.5"));
+    }
+
+    @Test
+    void bindingsWithoutACodeAreNoAlert() {
+        assertNull(PrtAlert.decode(bindings(PrtAlert.SEVERITY_WARNING, 8, 1, 0, 0, "Tray 1")));
+        assertNull(PrtAlert.decode(List.of(
+                new VariableBinding(new OID("1.3.6.1.2.1.1.3.0"), new Integer32(100)))));
+    }
+
+    @Test
+    void wrongTypesAreSkippedAndCounted() {
+        List<VariableBinding> bindings = bindings(PrtAlert.SEVERITY_WARNING, 8, 1, 0, 0, null);
+        bindings.add(binding(7, new OctetString("807")));
+        bindings.add(binding(8, new Integer32(1)));
+        long errors = Metrics.PARSE_ERRORS.sum();
+        assertNull(PrtAlert.decode(bindings));
+        assertEquals(errors + 2, Metrics.PARSE_ERRORS.sum());
+    }
+
+    @Test
+    void exceptionsAndMissingValuesAreIgnored() {
+        List<VariableBinding> bindings = bindings(PrtAlert.SEVERITY_WARNING, 8, 1, 0, 807, null);
+        bindings.add(binding(2, Null.noSuchInstance));
+        bindings.add(new VariableBinding(new OID(ALERT_ENTRY + "8.1.1")));
+        bindings.add(new VariableBinding(new OID(ALERT_ENTRY.substring(0, ALERT_ENTRY.length() - 1)), new Integer32(3)));
+        PrtAlert alert = PrtAlert.decode(bindings);
+        assertEquals(PrtAlert.SEVERITY_WARNING, alert.severity());
+        assertNull(alert.description());
+        assertEquals("ALERT: Warning: Low paper - 10.0.0.5", alert.message("10.0.0.5"));
+    }
+
+    @Test
+    void onlySupplyTrayAndMediaAlertsConcernTheInventory() {
+        assertTrue(new PrtAlert(PrtAlert.SEVERITY_WARNING, 8, 1, 0, 807, null).concernsInventory());
+        assertTrue(new PrtAlert(PrtAlert.SEVERITY_WARNING, 11, 1, 0, 1104, null).concernsInventory());
+        assertFalse(new PrtAlert(PrtAlert.SEVERITY_CRITICAL, 6, 1, 0, 3, null).concernsInventory());
+        assertFalse(new PrtAlert(PrtAlert.SEVERITY_CRITICAL, 5, 1, 0, 30, null).concernsInventory());
+    }
+
+    private static List<VariableBinding> bindings(int severity, int group, int groupIndex, int location, int code,
+                                                  String description) {
+        List<VariableBinding> bindings = new ArrayList<>();
+        bindings.add(binding(2, new Integer32(severity)));
+        bindings.add(binding(4, new Integer32(group)));
+        bindings.add(binding(5, new Integer32(groupIndex)));
+        bindings.add(binding(6, new Integer32(location)));
+        if (code != 0) bindings.add(binding(7, new Integer32(code)));
+        if (description != null) bindings.add(binding(8, new OctetString(description)));
+        return bindings;
+    }
+
+    // Column of the alert with index 1 of the first printer (hrDeviceIndex 1)
+    private static VariableBinding binding(int column, Variable value) {
+        return new VariableBinding(new OID(ALERT_ENTRY + column + ".1.1"), value);
+    }
+}
@@ -0,0 +1,88 @@
+package dev.amine.SNMP;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RttEstimatorTest {
+    private static final String HOST = "10.0.0.5";
+
+    private final RttEstimator estimator = new RttEstimator(1000, 100, 5000);
+
+    @Test
+    void unknownHostGetsTheInitialTimeoutAndOneRetry() {
+        assertEquals(1000, estimator.timeoutFor(HOST));
+        assertEquals(1, estimator.retriesFor(HOST));
+    }
+
+    @Test
+    void firstSampleSetsTheEstimate() {
+        estimator.sample(HOST, 40, 1000);
+        // srtt 40, rttvar 20: 40 + 4 * 20
+        assertEquals(120, estimator.timeoutFor(HOST));
+        assertEquals(2, estimator.retriesFor(HOST));
+    }
+
+    @Test
+    void laterSamplesAreSmoothed() {
+        estimator.sample(HOST, 40, 1000);
+        estimator.sample(HOST, 200, 1000);
+        // rttvar 0.75 * 20 + 0.25 * 160 = 55, srtt 0.875 * 40 + 0.125 * 200 = 60
+        assertEquals(280, estimator.timeoutFor(HOST));
+    }
+
+    @Test
+    void backedOffHostGetsFewerRetries() {
+        estimator.sample(HOST, 40, 1000);
+        for (int i = 0; i < 5; i++) {
+            estimator.timedOut(HOST);
+        }
+        // 120 ms doubled five times; only one such attempt fits the 4 s retry budget
+        assertEquals(3840, estimator.timeoutFor(HOST));
+        assertEquals(0, estimator.retriesFor(HOST));
+    }
+
+    @Test
+    void timeoutIsClamped() {
+        estimator.sample(HOST, 1, 1000);
+        assertEquals(100, estimator.timeoutFor(HOST));
+
+        estimator.sample("10.0.0.6", 4000, 10000);
+        assertEquals(5000, estimator.timeoutFor("10.0.0.6"));
+    }
+
+    @Test
+    void timeoutsBackOffUntilTheNextAnswer() {
+        estimator.sample(HOST, 40, 1000);
+        estimator.timedOut(HOST);
+        assertEquals(240, estimator.timeoutFor(HOST));
+        estimator.timedOut(HOST);
+        assertEquals(480, estimator.timeoutFor(HOST));
+
+        estimator.sample(HOST, 40, 480);
+        assertTrue(estimator.timeoutFor(HOST) < 240);
+    }
+
+    @Test
+    void lateAnswerClearsTheBackoffWithoutBecomingASample() {
+        estimator.sample(HOST, 40, 1000);
+        estimator.timedOut(HOST);
+        // Slower than the timeout it was sent with: maybe the answer to a retry (Karn's rule)
+        estimator.sample(HOST, 900, 240);
+        assertEquals(120, estimator.timeoutFor(HOST));
+    }
+
+    @Test
+    void timeoutOfAnUnknownHostKeepsNoState() {
+        estimator.timedOut(HOST);
+        assertEquals(1000, estimator.timeoutFor(HOST));
+        assertEquals(1, estimator.retriesFor(HOST));
+    }
+
+    @Test
+    void forgottenHostStartsOver() {
+        estimator.sample(HOST, 40, 1000);
+        estimator.forget(HOST);
+        assertEquals(1000, estimator.timeoutFor(HOST));
+    }
+}
@@ -0,0 +1,139 @@
+package dev.amine.SNMP;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScanJournalTest {
+    // Two 20 byte records (28 framed) fit in a segment
+    private static final int SEGMENT_BYTES = 64;
+    private static final int FRAMED_BYTES = 28;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recordsAreReadBackInOrder() throws IOException {
+        try (ScanJournal journal = new ScanJournal(dir, 4096, 1 << 20, false)) {
+            journal.append(record(1));
+            long end = journal.append(record(2));
+            assertEquals(end, journal.getEndOffset());
+            assertEquals(List.of("record-0000000000001", "record-0000000000002"), readAll(journal, 0));
+            assertNull(journal.read(end));
+        }
+    }
+
+    @Test
+    void recordsRollOverIntoNewSegments() throws IOException {
+        try (ScanJournal journal = new ScanJournal(dir, SEGMENT_BYTES, 1 << 20, false)) {
+            for (int i = 1; i <= 5; i++) journal.append(record(i));
+            assertEquals(3, segmentFiles().size());
+            assertEquals(5, readAll(journal, 0).size());
+            assertEquals("record-0000000000003", text(journal.read(2 * FRAMED_BYTES)));
+        }
+    }
+
+    @Test
+    void oversizedRecordGetsASegmentOfItsOwn() throws IOException {
+        try (ScanJournal journal = new ScanJournal(dir, SEGMENT_BYTES, 1 << 20, false)) {
+            byte[] large = new byte[200];
+            large[0] = 42;
+            journal.append(record(1));
+            journal.append(large);
+            ScanJournal.Entry entry = journal.read(FRAMED_BYTES);
+            assertEquals(200, entry.payload().remaining());
+            assertEquals(42, entry.payload().get(0));
+        }
+    }
+
+    @Test
+    void recordsAndCommittedOffsetSurviveAReopen() throws IOException {
+        long end;
+        try (ScanJournal journal = new ScanJournal(dir, SEGMENT_BYTES, 1 << 20, false)) {
+            for (int i = 1; i <= 3; i++) journal.append(record(i));
+            journal.commit(FRAMED_BYTES);
+            end = journal.getEndOffset();
+        }
+        try (ScanJournal journal = new ScanJournal(dir, SEGMENT_BYTES, 1 << 20, false)) {
+            assertEquals(FRAMED_BYTES, journal.getCommittedOffset());
+            assertEquals(end, journal.getEndOffset());
+            assertEquals(List.of("record-0000000000002", "record-0000000000003"),
+                    readAll(journal, journal.getCommittedOffset()));
+            assertEquals(end + FRAMED_BYTES, journal.append(record(4)));
+        }
+    }
+
+    @Test
+    void corruptRecordSkipsToTheNextSegment() throws IOException {
+        try (ScanJournal journal = new ScanJournal(dir, SEGMENT_BYTES, 1 << 20, false)) {
+            for (int i = 1; i <= 3; i++) journal.append(record(i));
+        }
+        // Flip a payload byte of the second record, the last one of the first segment
+        try (FileChannel channel = FileChannel.open(segmentFiles().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), FRAMED_BYTES + 8);
+        }
+        try (ScanJournal journal = new ScanJournal(dir, SEGMENT_BYTES, 1 << 20, false)) {
+            assertEquals(List.of("record-0000000000001", "record-0000000000003"), readAll(journal, 0));
+        }
+    }
+
+    @Test
+    void commitDeletesDrainedSegments() throws IOException {
+        try (ScanJournal journal = new ScanJournal(dir, SEGMENT_BYTES, 1 << 20, false)) {
+            for (int i = 1; i <= 5; i++) journal.append(record(i));
+            journal.commit(3 * FRAMED_BYTES);
+            // The segment holding the third record is still being read
+            assertEquals(2, segmentFiles().size());
+            assertEquals("record-0000000000004", text(journal.read(journal.getCommittedOffset())));
+
+            journal.commit(journal.getEndOffset());
+            assertEquals(1, segmentFiles().size());
+            assertNull(journal.read(journal.getCommittedOffset()));
+        }
+    }
+
+    @Test
+    void budgetDropsTheOldestSegment() throws IOException {
+        try (ScanJournal journal = new ScanJournal(dir, SEGMENT_BYTES, 2 * SEGMENT_BYTES, false)) {
+            for (int i = 1; i <= 5; i++) journal.append(record(i));
+            assertEquals(2, segmentFiles().size());
+            assertEquals(2 * FRAMED_BYTES, journal.getCommittedOffset());
+            assertEquals(List.of("record-0000000000003", "record-0000000000004", "record-0000000000005"),
+                    readAll(journal, 0));
+        }
+    }
+
+    private static byte[] record(int i) {
+        return String.format("record-%013d", i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(ScanJournal.Entry entry) {
+        return StandardCharsets.UTF_8.decode(entry.payload()).toString();
+    }
+
+    private static List<String> readAll(ScanJournal journal, long offset) {
+        List<String> records = new ArrayList<>();
+        for (ScanJournal.Entry entry = journal.read(offset); entry != null; entry = journal.read(entry.nextOffset())) {
+            records.add(text(entry));
+        }
+        return records;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+}
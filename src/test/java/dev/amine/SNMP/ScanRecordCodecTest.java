@@ -0,0 +1,143 @@
+package dev.amine.SNMP;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScanRecordCodecTest {
+
+    @Test
+    void roundTripKeepsEveryField() {
+        PrinterDevice printer = printer();
+        ScanRecordCodec.Scan scan = ScanRecordCodec.decode(ByteBuffer.wrap(
+                ScanRecordCodec.encode(1_700_000_000_123L, List.of(printer))));
+
+        assertEquals(1_700_000_000_123L, scan.scannedAt());
+        assertEquals(1, scan.printers().size());
+        PrinterDevice decoded = scan.printers().get(0);
+        assertEquals("10.0.0.5", decoded.getIpAddress());
+        assertEquals("AA:BB:CC:DD:EE:FF", decoded.getMacAddress());
+        assertEquals("Color LaserJet M554", decoded.getModelName());
+        assertEquals("JPBCS12345", decoded.getSerialNumber());
+        assertEquals("HP", decoded.getVendor());
+        assertEquals(PrinterStatus.WARNING, decoded.getStatus());
+        assertEquals(Long.valueOf(123456), decoded.getTotalPageCount());
+        assertEquals(Long.valueOf(45678), decoded.getColorPageCount());
+        assertEquals(Long.valueOf(77778), decoded.getMonoPageCount());
+        assertEquals(printer.getSupplyLevels(), decoded.getSupplyLevels());
+        assertEquals(printer.getSupplyMaxLevels(), decoded.getSupplyMaxLevels());
+        assertEquals(printer.getSupplyDescriptions(), decoded.getSupplyDescriptions());
+        assertEquals(printer.getTrayLevels(), decoded.getTrayLevels());
+        assertEquals(printer.getTrayMaxLevels(), decoded.getTrayMaxLevels());
+        assertEquals(printer.getTrayDescriptions(), decoded.getTrayDescriptions());
+        assertEquals(printer.getSupportedMediaSizes(), decoded.getSupportedMediaSizes());
+        // Keys come back in the order the printer reported them
+        assertEquals(List.copyOf(printer.getSupplyLevels().keySet()), List.copyOf(decoded.getSupplyLevels().keySet()));
+    }
+
+    @Test
+    void decodedPrintersHaveTheirFlagsDerived() {
+        PrinterDevice decoded = ScanRecordCodec.decode(ByteBuffer.wrap(
+                ScanRecordCodec.encode(0, List.of(printer())))).printers().get(0);
+        assertTrue(decoded.isColorPrinter());
+        assertTrue(decoded.isLowToner());
+        assertFalse(decoded.isLowPaper());
+        assertTrue(decoded.canPrintA3());
+        assertTrue(decoded.canPrintA4());
+    }
+
+    @Test
+    void missingValuesStayMissing() {
+        PrinterDevice printer = new PrinterDevice();
+        printer.setIpAddress("10.0.0.6");
+        PrinterDevice decoded = ScanRecordCodec.decode(ByteBuffer.wrap(
+                ScanRecordCodec.encode(-1, List.of(printer)))).printers().get(0);
+        assertEquals("10.0.0.6", decoded.getIpAddress());
+        assertNull(decoded.getMacAddress());
+        assertNull(decoded.getSerialNumber());
+        assertNull(decoded.getVendor());
+        assertNull(decoded.getStatus());
+        assertNull(decoded.getTotalPageCount());
+        assertTrue(decoded.getSupplyLevels().isEmpty());
+        assertTrue(decoded.getSupportedMediaSizes().isEmpty());
+    }
+
+    @Test
+    void extremeNumbersSurvive() {
+        PrinterDevice printer = printer();
+        printer.setTotalPageCount(Long.MAX_VALUE);
+        printer.setColorPageCount(Long.MIN_VALUE);
+        printer.getSupplyLevels().put("Black Toner", -2);
+        PrinterDevice decoded = ScanRecordCodec.decode(ByteBuffer.wrap(
+                ScanRecordCodec.encode(Long.MIN_VALUE, List.of(printer)))).printers().get(0);
+        assertEquals(Long.valueOf(Long.MAX_VALUE), decoded.getTotalPageCount());
+        assertEquals(Long.valueOf(Long.MIN_VALUE), decoded.getColorPageCount());
+        assertEquals(Integer.valueOf(-2), decoded.getSupplyLevels().get("Black Toner"));
+    }
+
+    @Test
+    void manyPrintersInOneRecord() {
+        PrinterDevice first = printer();
+        PrinterDevice second = printer();
+        second.setIpAddress("10.0.0.7");
+        second.setModelName("\u00dcn\u00efcode Mod\u00e8l");
+        List<PrinterDevice> decoded = ScanRecordCodec.decode(ByteBuffer.wrap(
+                ScanRecordCodec.encode(0, List.of(first, second)))).printers();
+        assertEquals(2, decoded.size());
+        assertEquals("10.0.0.7", decoded.get(1).getIpAddress());
+        assertEquals("\u00dcn\u00efcode Mod\u00e8l", decoded.get(1).getModelName());
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        byte[] record = ScanRecordCodec.encode(0, List.of(printer()));
+        record[0] = 99;
+        assertThrows(IllegalArgumentException.class, () -> ScanRecordCodec.decode(ByteBuffer.wrap(record)));
+    }
+
+    @Test
+    void rejectsTruncatedRecords() {
+        byte[] record = ScanRecordCodec.encode(0, List.of(printer()));
+        for (int length : new int[]{0, 1, 5, record.length / 2, record.length - 1}) {
+            byte[] truncated = Arrays.copyOf(record, length);
+            assertThrows(IllegalArgumentException.class, () -> ScanRecordCodec.decode(ByteBuffer.wrap(truncated)),
+                    "length " + length);
+        }
+    }
+
+    @Test
+    void rejectsCountsLargerThanTheRecord() {
+        // Version 1, scannedAt 0, then a printer count of 2^20 with nothing behind it
+        byte[] record = {1, 0, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01};
+        assertThrows(IllegalArgumentException.class, () -> ScanRecordCodec.decode(ByteBuffer.wrap(record)));
+    }
+
+    private static PrinterDevice printer() {
+        PrinterDevice printer = new PrinterDevice();
+        printer.setIpAddress("10.0.0.5");
+        printer.setMacAddress("AA:BB:CC:DD:EE:FF");
+        printer.setModelName("Color LaserJet M554");
+        printer.setSerialNumber("JPBCS12345");
+        printer.setVendor("HP");
+        printer.setStatus(PrinterStatus.WARNING);
+        printer.setTotalPageCount(123456L);
+        printer.setColorPageCount(45678L);
+        printer.setMonoPageCount(77778L);
+        Map.of("Black Toner", 5, "Cyan Toner", 80).forEach((name, level) -> {
+            printer.getSupplyLevels().put(name, level);
+            printer.getSupplyMaxLevels().put(name, 100);
+            printer.getSupplyDescriptions().put(name, name);
+        });
+        printer.getTrayLevels().put("Tray 1", 250);
+        printer.getTrayMaxLevels().put("Tray 1", 500);
+        printer.getTrayDescriptions().put("Tray 1", "Tray 1");
+        printer.getSupportedMediaSizes().add("iso-a4");
+        printer.getSupportedMediaSizes().add("iso-a3");
+        return printer;
+    }
+}
@@ -0,0 +1,26 @@
+package dev.amine.SNMP;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScanSpoolTest {
+
+    @Test
+    void onlyConnectionAndConcurrencyFailuresAreRetried() {
+        assertTrue(ScanSpool.isTransient(new SQLTransientConnectionException("timeout")));
+        assertTrue(ScanSpool.isTransient(new SQLException("connection refused", "08001")));
+        assertTrue(ScanSpool.isTransient(new SQLException("deadlock", "40P01")));
+        assertTrue(ScanSpool.isTransient(new SQLException("no state")));
+        assertFalse(ScanSpool.isTransient(new SQLException("value too long", "22001")));
+        assertFalse(ScanSpool.isTransient(new SQLException("duplicate key", "23505")));
+        assertFalse(ScanSpool.isTransient(new IllegalArgumentException("Truncated scan record")));
+
+        SQLException batch = new SQLException("batch aborted");
+        batch.setNextException(new SQLException("not null", "23502"));
+        assertFalse(ScanSpool.isTransient(batch));
+    }
+}
@@ -0,0 +1,61 @@
+package dev.amine.SNMP;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+    private static final long SLOT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    // Time that may pass between two reserve() calls of a test and still refill the bucket a little
+    private static final long SLACK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    @Test
+    void burstIsServedWithoutWaiting() {
+        TokenBucket bucket = new TokenBucket(10, 5);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.reserve());
+        }
+        long wait = bucket.reserve();
+        assertTrue(wait > SLOT_NANOS - SLACK_NANOS && wait <= SLOT_NANOS, "waited " + wait);
+    }
+
+    @Test
+    void waitingCallersGetConsecutiveSlots() {
+        TokenBucket bucket = new TokenBucket(10, 1);
+        assertEquals(0, bucket.reserve());
+        long first = bucket.reserve();
+        long second = bucket.reserve();
+        long third = bucket.reserve();
+        assertTrue(Math.abs(second - first - SLOT_NANOS) <= SLACK_NANOS, "slots " + first + ", " + second);
+        assertTrue(Math.abs(third - second - SLOT_NANOS) <= SLACK_NANOS, "slots " + second + ", " + third);
+    }
+
+    @Test
+    void acquireSleepsUntilItsSlot() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(20, 1);
+        bucket.acquire();
+        long startedAt = System.nanoTime();
+        bucket.acquire();
+        assertTrue(System.nanoTime() - startedAt >= TimeUnit.MILLISECONDS.toNanos(40));
+    }
+
+    @Test
+    void rateChangeAppliesToLaterReservations() {
+        TokenBucket bucket = new TokenBucket(10, 1);
+        bucket.reserve();
+        bucket.setRate(1000);
+        assertEquals(1000, bucket.getRate(), 0);
+        assertTrue(bucket.reserve() <= TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Test
+    void rateAndBurstHaveAFloor() {
+        TokenBucket bucket = new TokenBucket(0, 0);
+        assertEquals(0.1, bucket.getRate(), 0);
+        assertEquals(0, bucket.reserve());
+        bucket.setRate(-5);
+        assertEquals(0.1, bucket.getRate(), 0);
+    }
+}
@@ -0,0 +1,41 @@
+package dev.amine.SNMP;
+
+import org.junit.jupiter.api.Test;
+import org.snmp4j.smi.OID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VendorClassifierTest {
+
+    @Test
+    void vendorComesFromTheEnterprisePrefix() {
+        assertEquals("HP", VendorClassifier.ofObjectId(new OID("1.3.6.1.4.1.11.2.3.9.1")));
+        assertEquals("Canon", VendorClassifier.ofObjectId(new OID("1.3.6.1.4.1.1602.4.1")));
+        assertEquals("Konica Minolta", VendorClassifier.ofObjectId(new OID("1.3.6.1.4.1.18334")));
+    }
+
+    @Test
+    void prefixesMatchWholeArcs() {
+        // 110 is not HP's 11 followed by a 0
+        assertNull(VendorClassifier.ofObjectId(new OID("1.3.6.1.4.1.110.1")));
+        assertNull(VendorClassifier.ofObjectId(new OID("1.3.6.1.4.1")));
+    }
+
+    @Test
+    void unknownOrMissingObjectIdHasNoVendor() {
+        assertNull(VendorClassifier.ofObjectId(new OID("1.3.6.1.4.1.99999.1")));
+        assertNull(VendorClassifier.ofObjectId(new OID("0.0")));
+        assertNull(VendorClassifier.ofObjectId(null));
+    }
+
+    @Test
+    void nameIsTheFallback() {
+        assertEquals("HP", VendorClassifier.ofName("HP LaserJet M507"));
+        assertEquals("Konica Minolta", VendorClassifier.ofName("bizhub C300i"));
+        assertEquals("Xerox", VendorClassifier.ofName("VersaLink C405"));
+        assertEquals("Canon", VendorClassifier.ofName("iR-ADV C5535"));
+        assertEquals(VendorClassifier.UNKNOWN, VendorClassifier.ofName("Printer-3F"));
+        assertEquals(VendorClassifier.UNKNOWN, VendorClassifier.ofName(""));
+        assertEquals(VendorClassifier.UNKNOWN, VendorClassifier.ofName(null));
+    }
+}